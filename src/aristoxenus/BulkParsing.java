@@ -0,0 +1,230 @@
+package src.aristoxenus;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import src.aristoxenus.Classes.ChordSymbol;
+import src.aristoxenus.Classes.ParsedBatch;
+
+/**
+ * Parse large collections of chord symbols in parallel.
+ *
+ * Symbols are gathered into batches, and each batch is split recursively
+ * across the cores of a ForkJoinPool. Results come back as primitive
+ * arrays (Classes.ParsedBatch) along with the time each batch took.
+ * Individual symbols go through Parsing.parseChord, so the symbols that
+ * repeat throughout a corpus are only parsed once.
+ */
+public class BulkParsing {
+
+    /** Number of symbols per batch when none is given. */
+    public static final int DEFAULT_BATCH_SIZE = 8192;
+
+    /** Ranges smaller than this are parsed without further splitting. */
+    private static final int SEQUENTIAL_THRESHOLD = 512;
+
+    /**
+     * Parse an array of [chord_symbols] in parallel on the common pool.
+     *
+     * @param chord_symbols The symbols to parse.
+     * @return              The results, in the order of the symbols.
+     */
+    public static ParsedBatch parse(String[] chord_symbols) {
+        return parse(chord_symbols, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Parse an array of [chord_symbols] in parallel on the given [pool].
+     *
+     * @param chord_symbols The symbols to parse.
+     * @param pool          The pool to split the work across.
+     * @return              The results, in the order of the symbols.
+     */
+    public static ParsedBatch parse(String[] chord_symbols, ForkJoinPool pool) {
+        return pool.invoke(new BatchTask(0, chord_symbols));
+    }
+
+    /**
+     * Parse a file of chord symbols, one per line, delivering the results
+     * batch by batch. Blank lines are skipped.
+     *
+     * @see #parse(Stream, int, boolean, ForkJoinPool, Consumer)
+     */
+    public static void parse(Path file, int batch_size, boolean ordered,
+            Consumer<ParsedBatch> consumer) {
+        try (Stream<String> lines = Files.lines(file)) {
+            parse(lines.map(String::strip).filter(line -> !line.isEmpty()),
+                    batch_size, ordered, ForkJoinPool.commonPool(), consumer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parse a stream of [chord_symbols], delivering the results batch by
+     * batch.
+     *
+     * The stream is read on the calling thread and cut into batches of
+     * [batch_size], which are parsed in parallel on the [pool]. A bounded
+     * number of batches is in flight at any time, so the stream can be
+     * arbitrarily long. The [consumer] is always called on the calling
+     * thread, one batch at a time.
+     *
+     * @param chord_symbols The symbols to parse.
+     * @param batch_size    The number of symbols per batch.
+     * @param ordered       If true, batches are delivered in the order of
+     *                      the stream; otherwise as soon as they are done.
+     *                      Either way, ParsedBatch.sequence gives the
+     *                      position of a batch in the stream.
+     * @param pool          The pool to parse on.
+     * @param consumer      Receives each parsed batch.
+     */
+    public static void parse(Stream<String> chord_symbols, int batch_size, boolean ordered,
+            ForkJoinPool pool, Consumer<ParsedBatch> consumer) {
+        if (batch_size < 1) {
+            throw new IllegalArgumentException("Batch size must be positive.");
+        }
+        int window = 2 * pool.getParallelism();
+        ArrayDeque<Future<ParsedBatch>> pending = new ArrayDeque<Future<ParsedBatch>>();
+        CompletionService<ParsedBatch> completed = new ExecutorCompletionService<ParsedBatch>(pool);
+        Iterator<String> symbols = chord_symbols.iterator();
+        String[] batch = new String[batch_size];
+        long sequence = 0;
+        int in_flight = 0;
+
+        while (symbols.hasNext()) {
+            int size = 0;
+            while (size < batch_size && symbols.hasNext()) {
+                batch[size++] = symbols.next();
+            }
+            BatchTask task = new BatchTask(sequence++, Arrays.copyOf(batch, size));
+            if (ordered) {
+                pending.add(pool.submit(task));
+                if (pending.size() >= window) {
+                    consumer.accept(await(pending.poll()));
+                }
+            } else {
+                completed.submit(task::invoke);
+                if (++in_flight >= window) {
+                    consumer.accept(await(take(completed)));
+                    in_flight--;
+                }
+            }
+        }
+        while (!pending.isEmpty()) {
+            consumer.accept(await(pending.poll()));
+        }
+        for (; in_flight > 0; in_flight--) {
+            consumer.accept(await(take(completed)));
+        }
+    }
+
+    private static Future<ParsedBatch> take(CompletionService<ParsedBatch> completed) {
+        try {
+            return completed.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while parsing.", e);
+        }
+    }
+
+    private static ParsedBatch await(Future<ParsedBatch> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while parsing.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Parsing failed.", e.getCause());
+        }
+    }
+
+    /**
+     * Parse a whole batch and time it.
+     */
+    @SuppressWarnings("serial")
+    private static final class BatchTask extends RecursiveTask<ParsedBatch> {
+        private final long sequence;
+        private final String[] chord_symbols;
+
+        private BatchTask(long sequence, String[] chord_symbols) {
+            this.sequence = sequence;
+            this.chord_symbols = chord_symbols;
+        }
+
+        @Override
+        protected ParsedBatch compute() {
+            long start = System.nanoTime();
+            ParsedBatch batch = new ParsedBatch(sequence, chord_symbols.length);
+            batch.failures = new RangeTask(chord_symbols, batch, 0, chord_symbols.length).invoke();
+            batch.nanos = System.nanoTime() - start;
+            return batch;
+        }
+    }
+
+    /**
+     * Parse the symbols between [from] and [to] into the [batch], splitting
+     * in half until the range is small. Returns the number of failures.
+     */
+    @SuppressWarnings("serial")
+    private static final class RangeTask extends RecursiveTask<Integer> {
+        private final String[] chord_symbols;
+        private final ParsedBatch batch;
+        private final int from;
+        private final int to;
+
+        private RangeTask(String[] chord_symbols, ParsedBatch batch, int from, int to) {
+            this.chord_symbols = chord_symbols;
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                return parseRange();
+            }
+            int middle = (from + to) >>> 1;
+            RangeTask left = new RangeTask(chord_symbols, batch, from, middle);
+            left.fork();
+            int failures = new RangeTask(chord_symbols, batch, middle, to).compute();
+            return failures + left.join();
+        }
+
+        private int parseRange() {
+            int failures = 0;
+            for (int i = from; i < to; i++) {
+                try {
+                    if (chord_symbols[i] == null) {
+                        throw new IllegalArgumentException("Missing chord symbol.");
+                    }
+                    ChordSymbol parsed = Parsing.parseChord(chord_symbols[i]);
+                    batch.roots[i] = parsed.root;
+                    batch.basses[i] = parsed.bass;
+                    batch.masks[i] = parsed.pitches.low();
+                    batch.high_masks[i] = parsed.pitches.high();
+                } catch (IllegalArgumentException e) {
+                    batch.roots[i] = -1;
+                    batch.basses[i] = -1;
+                    failures++;
+                }
+            }
+            return failures;
+        }
+    }
+
+}
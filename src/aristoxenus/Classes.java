@@ -4,13 +4,265 @@ import java.util.List;
 
 public class Classes {
     
+    /**
+     * A spelled scale with the total number of sharps and flats across
+     * all of its notes.
+     */
     public static class ScaleSynopsis{
-            int sharps = 0;
-            int flats = 0;
-            List<String> scale;
-            boolean mixed = false;
+            final int sharps;
+            final int flats;
+            final List<String> scale;
+            final boolean mixed;
             public ScaleSynopsis (List<String> scale){
+                int sharps = 0;
+                int flats = 0;
+                for (String note : scale){
+                    sharps += Functions.countSubstring(note, Constants.SHARP_SYMBOL);
+                    flats += Functions.countSubstring(note, Constants.FLAT_SYMBOL);
+                }
                 this.scale = scale;
+                this.sharps = sharps;
+                this.flats = flats;
+                this.mixed = sharps > 0 & flats > 0;
+            }
+        }
+
+    /**
+     * The note nearest to some frequency, with the deviation of that
+     * frequency from the note in cents (positive = sharp).
+     */
+    public static class NoteMatch{
+            public final String note;
+            public final int pitch;
+            public final double cents;
+            public NoteMatch (String note, int pitch, double cents){
+                this.note = note;
+                this.pitch = pitch;
+                this.cents = cents;
+            }
+            @Override
+            public String toString(){
+                return String.format("%s (%+.1f cents)", note, cents);
+            }
+        }
+
+    /**
+     * A parsed chord symbol: the pitch classes (0 = C) of its root and
+     * lowest note, and the interval structure measured up from the lowest
+     * note.
+     */
+    public static class ChordSymbol{
+            public final String symbol;
+            public final int root;
+            public final int bass;
+            public final WidePitchSet pitches;
+            public final IntervalBase structure;
+            public ChordSymbol (String symbol, int root, int bass, WidePitchSet pitches){
+                this.symbol = symbol;
+                this.root = root;
+                this.bass = bass;
+                this.pitches = pitches;
+                this.structure = pitches.toIntervalBase();
+            }
+            /** Return the binomial name of the root. */
+            public String rootName(){
+                return Nomenclature.chromatic().get(root);
+            }
+            /** Return the binomial name of the lowest note. */
+            public String bassName(){
+                return Nomenclature.chromatic().get(bass);
+            }
+            @Override
+            public String toString(){
+                return String.format("%s (%s over %s: %s)", symbol, rootName(), bassName(), structure);
+            }
+        }
+
+    /**
+     * The compact results of parsing a batch of chord symbols. Entry i of
+     * each array belongs to the i-th symbol of the batch; symbols that
+     * could not be parsed have a root of -1 and empty masks.
+     * 
+     * The structure of each symbol is split into two words: bits 0 to 63
+     * in [masks] and bits 64 and up (polychords only) in [high_masks].
+     */
+    public static class ParsedBatch{
+            public final long sequence;
+            public final int[] roots;
+            public final int[] basses;
+            public final long[] masks;
+            public final long[] high_masks;
+            int failures = 0;
+            long nanos = 0;
+            public ParsedBatch (long sequence, int size){
+                this.sequence = sequence;
+                this.roots = new int[size];
+                this.basses = new int[size];
+                this.masks = new long[size];
+                this.high_masks = new long[size];
+            }
+            /** Return the number of symbols in the batch. */
+            public int size(){
+                return roots.length;
+            }
+            /** Return the number of symbols that could not be parsed. */
+            public int failures(){
+                return failures;
+            }
+            /** Return the time spent parsing the batch, in nanoseconds. */
+            public long nanos(){
+                return nanos;
+            }
+            /** Return the parsing throughput of the batch. */
+            public double symbolsPerSecond(){
+                return (nanos == 0) ? 0 : size() * 1e9 / nanos;
+            }
+            @Override
+            public String toString(){
+                return String.format("Batch %s: %s symbols, %s failures, %.0f symbols/s",
+                        sequence, size(), failures, symbolsPerSecond());
+            }
+        }
+
+    /**
+     * The pitches from [low] up to but not including [high], as a range of
+     * pitch numbers (see ScientificPitch).
+     */
+    public static class PitchInterval{
+            public final int low;
+            public final int high;
+            public PitchInterval (int low, int high){
+                if (high < low){
+                    throw new IllegalArgumentException(String.format(
+                            "Interval [%s, %s) is reversed.", low, high));
+                }
+                this.low = low;
+                this.high = high;
+            }
+            /** Return the number of pitches in the interval. */
+            public int size(){
+                return high - low;
+            }
+            public boolean isEmpty(){
+                return high == low;
+            }
+            /** Check whether the interval holds the given [pitch]. */
+            public boolean contains(int pitch){
+                return pitch >= low & pitch < high;
+            }
+            /** Check whether the interval holds every pitch of [other]. */
+            public boolean contains(PitchInterval other){
+                return other.low >= low & other.high <= high;
+            }
+            /** Return the interval moved up by [semitones] (down if negative). */
+            public PitchInterval shift(int semitones){
+                return new PitchInterval(low + semitones, high + semitones);
+            }
+            /** Return the pitches held by both this interval and [other]. */
+            public PitchInterval intersection(PitchInterval other){
+                int new_low = Math.max(low, other.low);
+                return new PitchInterval(new_low, Math.max(new_low, Math.min(high, other.high)));
+            }
+            @Override
+            public boolean equals(Object other){
+                return other instanceof PitchInterval interval
+                        && interval.low == low && interval.high == high;
+            }
+            @Override
+            public int hashCode(){
+                return 31 * low + high;
+            }
+            @Override
+            public String toString(){
+                return String.format("[%s, %s)", low, high);
+            }
+        }
+
+    /**
+     * An interval structure sounding on a [root] pitch number (see
+     * ScientificPitch) for a number of [seconds], as one step of a
+     * sequence for the Synthesizer.
+     */
+    public static class TimedStructure{
+            public final int root;
+            public final WidePitchSet pitches;
+            public final double seconds;
+            public TimedStructure (int root, WidePitchSet pitches, double seconds){
+                if (!(seconds >= 0)){
+                    throw new IllegalArgumentException(
+                            String.format("Duration %s is not a length of time.", seconds));
+                }
+                this.root = root;
+                this.pitches = pitches;
+                this.seconds = seconds;
+            }
+            public TimedStructure (int root, IntervalBase structure, double seconds){
+                this(root, structure.toWidePitchSet(), seconds);
+            }
+            @Override
+            public String toString(){
+                return String.format("%s on %s for %ss", pitches, root, seconds);
+            }
+        }
+
+    /**
+     * A name for a set of pitch classes, as found by Identification: a
+     * chord suffix, mode or interval name on a root pitch class (0 = C),
+     * and the 12-tone structure it names, measured up from that root.
+     */
+    public static class Identified{
+            public final int root;
+            public final String name;
+            public final int vocabulary;
+            public final int structure;
+            public Identified (int root, String name, int vocabulary, int structure){
+                this.root = root;
+                this.name = name;
+                this.vocabulary = vocabulary;
+                this.structure = structure;
+            }
+            /**
+             * Return the name on its root from the given [chromatic] scale,
+             * e.g. "Am7" or "D dorian".
+             */
+            public String symbol(List<String> chromatic){
+                if (vocabulary == Identification.CHORD){
+                    return chromatic.get(root) + name;
+                }
+                return chromatic.get(root) + " " + name;
+            }
+            @Override
+            public String toString(){
+                return symbol(Nomenclature.chromatic());
+            }
+        }
+
+    /**
+     * What LivePitchState heard after one note event: the sounding MIDI
+     * note numbers, their best name (null if none fits), their plain
+     * names lowest first, and their pitch classes spelled up from the
+     * root. [nanos] is the System.nanoTime() of the event, and [sequence]
+     * counts the events.
+     */
+    public static class LiveAnalysis{
+            public final long sequence;
+            public final long nanos;
+            public final WidePitchSet notes;
+            public final Identified name;
+            public final List<String> plain;
+            public final List<String> spelled;
+            public LiveAnalysis (long sequence, long nanos, WidePitchSet notes, Identified name,
+                    List<String> plain, List<String> spelled){
+                this.sequence = sequence;
+                this.nanos = nanos;
+                this.notes = notes;
+                this.name = name;
+                this.plain = plain;
+                this.spelled = spelled;
+            }
+            @Override
+            public String toString(){
+                return String.format("%s %s", (name == null) ? "?" : name, spelled);
             }
         }
 }
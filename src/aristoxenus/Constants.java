@@ -174,11 +174,50 @@ public class Constants {
     }
 
     public final class ChordVoicingNames{
+        public final static String CLOSE = "close";
+        public final static String SPREAD = "spread";
         public final static String DROP_2 = "drop_2";
         public final static String DROP_3 = "drop_3";
         public final static String DROP_2_AND_4 = "drop_2_and_4";
     }
 
+    /*
+     * Interval structures of the chord qualities the program knows. Bit i
+     * is the note i semitones above the root; extensions above the octave
+     * (ninths, elevenths, thirteenths) keep their compound position.
+     */
+    public final class ChordStructures{
+        public final static int POWER_CHORD = 129;
+        public final static int MAJOR_TRIAD = 145;
+        public final static int MINOR_TRIAD = 137;
+        public final static int DIMINISHED_TRIAD = 73;
+        public final static int AUGMENTED_TRIAD = 273;
+        public final static int SUSPENDED_SECOND = 133;
+        public final static int SUSPENDED_FOURTH = 161;
+        public final static int MAJOR_SIXTH = 657;
+        public final static int MINOR_SIXTH = 649;
+        public final static int DOMINANT_SEVENTH = 1169;
+        public final static int MAJOR_SEVENTH = 2193;
+        public final static int MINOR_SEVENTH = 1161;
+        public final static int MINOR_MAJOR_SEVENTH = 2185;
+        public final static int HALF_DIMINISHED_SEVENTH = 1097;
+        public final static int DIMINISHED_SEVENTH = 585;
+        public final static int AUGMENTED_SEVENTH = 1297;
+        public final static int AUGMENTED_MAJOR_SEVENTH = 2321;
+        public final static int SUSPENDED_SEVENTH = 1185;
+        public final static int SIX_NINE = 17041;
+        public final static int ADDED_NINTH = 16529;
+        public final static int MINOR_ADDED_NINTH = 16521;
+        public final static int DOMINANT_NINTH = 17553;
+        public final static int MAJOR_NINTH = 18577;
+        public final static int MINOR_NINTH = 17545;
+        public final static int DOMINANT_MINOR_NINTH = 9361;
+        public final static int DOMINANT_AUGMENTED_NINTH = 33937;
+        public final static int DOMINANT_ELEVENTH = 148625;
+        public final static int MINOR_ELEVENTH = 148617;
+        public final static int DOMINANT_THIRTEENTH = 2114705;
+    }
+
 
     // Nomenclature constants generated from precursor constants.
     public static final List<String> NATURALS = Arrays.asList(
@@ -215,5 +254,38 @@ public class Constants {
         FLATS, 
         BINOMIALS);
 
+    // Chord symbol suffixes (the part after the root) and their structures.
+    public static final Map<String, Integer> CHORD_SUFFIXES = Map.ofEntries(
+        Map.entry("5", ChordStructures.POWER_CHORD),
+        Map.entry("", ChordStructures.MAJOR_TRIAD),
+        Map.entry("m", ChordStructures.MINOR_TRIAD),
+        Map.entry("dim", ChordStructures.DIMINISHED_TRIAD),
+        Map.entry("aug", ChordStructures.AUGMENTED_TRIAD),
+        Map.entry("sus2", ChordStructures.SUSPENDED_SECOND),
+        Map.entry("sus4", ChordStructures.SUSPENDED_FOURTH),
+        Map.entry("6", ChordStructures.MAJOR_SIXTH),
+        Map.entry("m6", ChordStructures.MINOR_SIXTH),
+        Map.entry("7", ChordStructures.DOMINANT_SEVENTH),
+        Map.entry("maj7", ChordStructures.MAJOR_SEVENTH),
+        Map.entry("m7", ChordStructures.MINOR_SEVENTH),
+        Map.entry("mMaj7", ChordStructures.MINOR_MAJOR_SEVENTH),
+        Map.entry("m7b5", ChordStructures.HALF_DIMINISHED_SEVENTH),
+        Map.entry("dim7", ChordStructures.DIMINISHED_SEVENTH),
+        Map.entry("aug7", ChordStructures.AUGMENTED_SEVENTH),
+        Map.entry("augMaj7", ChordStructures.AUGMENTED_MAJOR_SEVENTH),
+        Map.entry("7sus4", ChordStructures.SUSPENDED_SEVENTH),
+        Map.entry("69", ChordStructures.SIX_NINE),
+        Map.entry("add9", ChordStructures.ADDED_NINTH),
+        Map.entry("madd9", ChordStructures.MINOR_ADDED_NINTH),
+        Map.entry("9", ChordStructures.DOMINANT_NINTH),
+        Map.entry("maj9", ChordStructures.MAJOR_NINTH),
+        Map.entry("m9", ChordStructures.MINOR_NINTH),
+        Map.entry("7b9", ChordStructures.DOMINANT_MINOR_NINTH),
+        Map.entry("7#9", ChordStructures.DOMINANT_AUGMENTED_NINTH),
+        Map.entry("11", ChordStructures.DOMINANT_ELEVENTH),
+        Map.entry("m11", ChordStructures.MINOR_ELEVENTH),
+        Map.entry("13", ChordStructures.DOMINANT_THIRTEENTH)
+    );
+
         
 }
@@ -45,19 +45,24 @@ public class Functions {
 
     /**
      * Count the number of times a given [sub_string] occurs in a given
-     * [main_string].
+     * [main_string], without overlapping.
      * 
-     * @param main_string
-     * @param sub_string
-     * @return
+     * @param main_string   The string to search.
+     * @param sub_string    The string to count; an empty string is never
+     *                      counted.
+     * @return              The number of occurrences.
      */
     public static int countSubstring(String main_string, String sub_string){
+        if (sub_string.isEmpty()){
+            return 0;
+        }
         int count = 0;
-        while (main_string.indexOf(sub_string)>-1){
-            main_string = main_string.replaceFirst(sub_string, "");
+        int index = main_string.indexOf(sub_string);
+        while (index > -1){
             count++;
+            index = main_string.indexOf(sub_string, index + sub_string.length());
         }
-            return count ;
+        return count;
     }
 
 }
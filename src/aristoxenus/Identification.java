@@ -0,0 +1,212 @@
+package src.aristoxenus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import src.aristoxenus.Classes.Identified;
+import src.aristoxenus.Constants.IntervalNames;
+import src.aristoxenus.Constants.IntervalValues;
+import src.aristoxenus.Constants.Modes;
+
+/**
+ * Name a set of pitch classes: the reverse of Rendering.
+ *
+ * The vocabulary is the chord suffixes (Constants.CHORD_SUFFIXES), the
+ * modes of the major scale (Constants.Modes) and the simple intervals
+ * (Constants.IntervalNames), each folded into one octave. For every one
+ * of the 4096 pitch-class masks (bit i = pitch class i, 0 = C), every
+ * name of every rotation onto one of its notes is found in advance and
+ * ranked, so identifying a mask is a single array read.
+ *
+ * Names are ranked by vocabulary (chords, then modes, then intervals),
+ * then by the length of the chord suffix, then in the order of the modes
+ * and intervals, then by root pitch class. E.g. {C, E, G, A} is C6 before
+ * Am7, and {C, D, E, F, G, A, B} is C ionian before D dorian.
+ */
+public final class Identification {
+    /** Vocabulary of chord suffixes. */
+    public static final int CHORD = 0;
+
+    /** Vocabulary of mode names. */
+    public static final int MODE = 1;
+
+    /** Vocabulary of interval names. */
+    public static final int INTERVAL = 2;
+
+    /** Returned by best() when no name fits. */
+    public static final int NONE = -1;
+
+    private static final int ROOT_BITS = 4;
+    private static final int ROOT_MASK = (1 << ROOT_BITS) - 1;
+
+    private static final List<String> MODE_NAMES = List.of(
+        Modes.IONIAN, Modes.DORIAN, Modes.PHRYGIAN, Modes.LYDIAN,
+        Modes.MIXOLYDIAN, Modes.AEOLIAN, Modes.LOCRIAN);
+
+    private static final int MAJOR_SCALE = 2741;
+
+    private static final List<String> INTERVAL_NAMES = List.of(
+        IntervalNames.HEMITONE, IntervalNames.TONE, IntervalNames.HEMIOLION,
+        IntervalNames.DITONE, IntervalNames.DIATESSARON, IntervalNames.TRITONE,
+        IntervalNames.DIAPENTE, IntervalNames.COMPOUND_HEMITONE, IntervalNames.COMPOUND_TONE,
+        IntervalNames.COMPOUND_HEMIOLION, IntervalNames.COMPOUND_DITONE);
+
+    private static final int[] INTERVAL_STRUCTURES = {
+        IntervalValues.HEMITONE, IntervalValues.TONE, IntervalValues.HEMIOLION,
+        IntervalValues.DITONE, IntervalValues.DIATESSARON, IntervalValues.TRITONE,
+        IntervalValues.DIAPENTE, IntervalValues.COMPOUND_HEMITONE, IntervalValues.COMPOUND_TONE,
+        IntervalValues.COMPOUND_HEMIOLION, IntervalValues.COMPOUND_DITONE};
+
+    /** The vocabulary in rank order; an entry's id is its index. */
+    private static final String[] NAMES;
+    private static final int[] VOCABULARIES;
+    private static final int[] STRUCTURES;
+
+    /** Ranked (id, root) pairs for every mask, and the first of each. */
+    private static final int[][] RANKED = new int[PitchClassCatalog.SIZE][];
+    private static final int[] BEST = new int[PitchClassCatalog.SIZE];
+
+    /** The ranked names of every mask, as shared lists. */
+    private static final List<List<Identified>> IDENTIFIED;
+
+    static {
+        List<String> suffixes = new ArrayList<String>(Constants.CHORD_SUFFIXES.keySet());
+        suffixes.sort((a, b) -> (a.length() != b.length())
+                ? Integer.compare(a.length(), b.length()) : a.compareTo(b));
+        int count = suffixes.size() + MODE_NAMES.size() + INTERVAL_NAMES.size();
+        NAMES = new String[count];
+        VOCABULARIES = new int[count];
+        STRUCTURES = new int[count];
+        int id = 0;
+        for (String suffix : suffixes) {
+            NAMES[id] = suffix;
+            VOCABULARIES[id] = CHORD;
+            STRUCTURES[id++] = fold(Constants.CHORD_SUFFIXES.get(suffix));
+        }
+        for (int i = 0; i < MODE_NAMES.size(); i++) {
+            NAMES[id] = MODE_NAMES.get(i);
+            VOCABULARIES[id] = MODE;
+            STRUCTURES[id++] = PitchClassCatalog.mode(MAJOR_SCALE, i);
+        }
+        for (int i = 0; i < INTERVAL_NAMES.size(); i++) {
+            NAMES[id] = INTERVAL_NAMES.get(i);
+            VOCABULARIES[id] = INTERVAL;
+            STRUCTURES[id++] = fold(INTERVAL_STRUCTURES[i]);
+        }
+
+        // Ids of the names of each rooted structure, in rank order.
+        List<List<Integer>> by_structure = new ArrayList<List<Integer>>();
+        for (int mask = 0; mask < PitchClassCatalog.SIZE; mask++) {
+            by_structure.add(new ArrayList<Integer>());
+        }
+        for (id = 0; id < count; id++) {
+            by_structure.get(STRUCTURES[id]).add(id);
+        }
+
+        // Every name of every rotation onto a flipped bit, as (id, root)
+        // pairs, which sort into rank order.
+        int[] pairs = new int[count * Constants.TONES];
+        for (int mask = 0; mask < PitchClassCatalog.SIZE; mask++) {
+            int found = 0;
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                int root = Integer.numberOfTrailingZeros(rest);
+                int rotation = (int) PitchSet.rotateRight(mask, root, Constants.TONES);
+                for (int name : by_structure.get(rotation)) {
+                    pairs[found++] = pack(name, root);
+                }
+            }
+            RANKED[mask] = Arrays.copyOf(pairs, found);
+            Arrays.sort(RANKED[mask]);
+            BEST[mask] = (found == 0) ? NONE : RANKED[mask][0];
+        }
+
+        List<List<Identified>> identified = new ArrayList<List<Identified>>();
+        for (int mask = 0; mask < PitchClassCatalog.SIZE; mask++) {
+            List<Identified> names = new ArrayList<Identified>(RANKED[mask].length);
+            for (int pair : RANKED[mask]) {
+                names.add(new Identified(root(pair), name(pair), vocabulary(pair), structure(pair)));
+            }
+            identified.add(Collections.unmodifiableList(names));
+        }
+        IDENTIFIED = Collections.unmodifiableList(identified);
+    }
+
+    private Identification() {}
+
+    /**
+     * Return the best name of a pitch-class [mask] as a packed (name,
+     * root) pair, or NONE. Read the pair with root(), name(),
+     * vocabulary() and structure(); nothing is allocated.
+     */
+    public static int best(int mask) {
+        return BEST[checked(mask)];
+    }
+
+    /**
+     * Write the best name of each of the [masks] into [out], as packed
+     * pairs (see best).
+     */
+    public static void best(int[] masks, int[] out) {
+        for (int i = 0; i < masks.length; i++) {
+            out[i] = BEST[checked(masks[i])];
+        }
+    }
+
+    /** Return the best name of a pitch-class [mask], or null. */
+    public static Identified identify(int mask) {
+        List<Identified> names = IDENTIFIED.get(checked(mask));
+        return names.isEmpty() ? null : names.get(0);
+    }
+
+    /** Return the best name of the pitch classes of any [pitches], or null. */
+    public static Identified identify(WidePitchSet pitches) {
+        return identify(PitchClassCatalog.maskOf(pitches));
+    }
+
+    /**
+     * Return every name of a pitch-class [mask], best first. The list is
+     * shared and cannot be modified.
+     */
+    public static List<Identified> identifyAll(int mask) {
+        return IDENTIFIED.get(checked(mask));
+    }
+
+    /** Return the root pitch class of a packed [pair]. */
+    public static int root(int pair) {
+        return pair & ROOT_MASK;
+    }
+
+    /** Return the name (without root) of a packed [pair]. */
+    public static String name(int pair) {
+        return NAMES[pair >>> ROOT_BITS];
+    }
+
+    /** Return the vocabulary (CHORD, MODE or INTERVAL) of a packed [pair]. */
+    public static int vocabulary(int pair) {
+        return VOCABULARIES[pair >>> ROOT_BITS];
+    }
+
+    /** Return the rooted 12-tone structure named by a packed [pair]. */
+    public static int structure(int pair) {
+        return STRUCTURES[pair >>> ROOT_BITS];
+    }
+
+    private static int pack(int id, int root) {
+        return (id << ROOT_BITS) | root;
+    }
+
+    /** Fold a structure that may reach past the octave into 12 bits. */
+    private static int fold(int interval_structure) {
+        return PitchClassCatalog.maskOf(WidePitchSet.valueOf(interval_structure));
+    }
+
+    private static int checked(int mask) {
+        if (mask < 0 || mask >= PitchClassCatalog.SIZE) {
+            throw new IllegalArgumentException(
+                    String.format("%s is not a 12-tone mask.", mask));
+        }
+        return mask;
+    }
+}
@@ -5,6 +5,13 @@ import java.lang.Math;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
 
 /**
  * General class to assist in treating binary code like an interval
@@ -35,6 +42,8 @@ public class IntervalBase implements Iterable<IntervalBase>{
     public IntervalBase(short interval){value = BigInteger.valueOf(interval);}
     public IntervalBase(int interval){value = BigInteger.valueOf(interval);}
     public IntervalBase(long interval){value = BigInteger.valueOf(interval);}
+    public IntervalBase(PitchSet interval){value = BigInteger.valueOf(interval.longValue());}
+    public IntervalBase(WidePitchSet interval){value = interval.toBigInteger();}
 
     /**Return the number of bits in the number. */
     public int bitLength(){return this.value.bitLength();}
@@ -42,6 +51,26 @@ public class IntervalBase implements Iterable<IntervalBase>{
     /**Return the number of flipped bits in the number. */
     public int bitCount(){return this.value.bitCount();}
 
+    /**
+     * Return the number as a PitchSet.
+     * 
+     * @throws ArithmeticException If the number does not fit in a long.
+     */
+    public PitchSet toPitchSet(){return PitchSet.valueOf(this.value.longValueExact());}
+
+    /**
+     * Return the number as a WidePitchSet.
+     * 
+     * @throws ArithmeticException If the number is negative or too wide.
+     */
+    public WidePitchSet toWidePitchSet(){return WidePitchSet.valueOf(this.value);}
+
+    /**
+     * Return true if the number is non-negative and fits in a PitchSet, so
+     * that the primitive fast paths can be used on it.
+     */
+    public boolean isNarrow(){return this.value.signum() >= 0 & this.value.bitLength() < Long.SIZE;}
+
     /**Return the binary representation of the number as a string. */
     public String toBinaryString(){return this.value.toString(2);}
 
@@ -59,16 +88,15 @@ public class IntervalBase implements Iterable<IntervalBase>{
      * Rotate the bits of a [collection] with [max_bits] to the left 1 time. 
      */
     public static IntervalBase rotateLeft(IntervalBase collection, int max_bits){
-
-        IntervalBase left = collection
-            .shiftLeft(1)
-            .and(new IntervalBase((int) Math.pow(2, max_bits) -1));
-
-        IntervalBase right = collection
-            .and(new IntervalBase((int) Math.pow(2, max_bits)))
-            .shiftRIght(max_bits - 1);
-
-        return left.or(right);
+        if (max_bits < Long.SIZE){
+            return new IntervalBase(PitchSet.rotateLeft(collection.value.longValue(), 1, max_bits));
+        }
+        if (max_bits <= WidePitchSet.CAPACITY){
+            return wide(collection, max_bits).rotateLeft(max_bits).toIntervalBase();
+        }
+        BigInteger bits = collection.value.and(mask(max_bits));
+        BigInteger carry = bits.testBit(max_bits - 1) ? BigInteger.ONE : BigInteger.ZERO;
+        return new IntervalBase(bits.clearBit(max_bits - 1).shiftLeft(1).or(carry));
     }
 
 
@@ -76,29 +104,42 @@ public class IntervalBase implements Iterable<IntervalBase>{
      * Rotate the bits of a [collection] with [max_bits] to the right 1 time. 
      */
     public static IntervalBase rotateRight(IntervalBase collection, int max_bits){
+        if (max_bits < Long.SIZE){
+            return new IntervalBase(PitchSet.rotateRight(collection.value.longValue(), 1, max_bits));
+        }
+        if (max_bits <= WidePitchSet.CAPACITY){
+            return wide(collection, max_bits).rotateRight(max_bits).toIntervalBase();
+        }
+        BigInteger bits = collection.value.and(mask(max_bits));
+        BigInteger carry = bits.testBit(0) ? BigInteger.ONE.shiftLeft(max_bits - 1) : BigInteger.ZERO;
+        return new IntervalBase(bits.shiftRight(1).or(carry));
+    }
 
-        IntervalBase left = collection
-            .and(new IntervalBase((int) Math.pow(2, max_bits) - 1))
-            .shiftRIght(1);
 
-        IntervalBase right = collection
-            .shiftLeft(max_bits - 1)
-            .and(new IntervalBase((int) Math.pow(2, max_bits) -1));
+    /** Return a BigInteger with the lowest [max_bits] flipped. */
+    private static BigInteger mask(int max_bits){
+        return BigInteger.ONE.shiftLeft(max_bits).subtract(BigInteger.ONE);
+    }
+
 
-        return left.or(right);
+    /** Return the lowest [max_bits] of a [collection] as a WidePitchSet. */
+    private static WidePitchSet wide(IntervalBase collection, int max_bits){
+        return WidePitchSet.valueOf(collection.value.and(mask(max_bits)));
     }
 
 
     /**
      * Rotate the [collection] right to the previous mode/inversion, assuming 
-     * it has [max_bits]. 
+     * it has [max_bits]: the lowest flipped bit above the root becomes the
+     * root. The rotation is found in one step (see ModeEngine).
      */
     public static IntervalBase previous_inversion(IntervalBase collection, int max_bits){
-        IntervalBase interval_structure = rotateRight(collection, max_bits);
-        while (interval_structure.value.mod(BigInteger.valueOf(2)).equals(BigInteger.ZERO)){
-            interval_structure = rotateRight(interval_structure, max_bits);
+        if (max_bits < Long.SIZE){
+            return new IntervalBase(ModeEngine.previous(collection.value.longValue(), max_bits));
         }
-        return interval_structure;
+        BigInteger bits = collection.value.and(mask(max_bits));
+        int above = bits.clearBit(0).getLowestSetBit();
+        return (above < 0) ? new IntervalBase(bits) : rotate(bits, above, max_bits);
     }
 
 
@@ -107,24 +148,24 @@ public class IntervalBase implements Iterable<IntervalBase>{
      * it has [max_bits]. 
      */
     public IntervalBase previous_inversion(int max_bits){
-        IntervalBase interval_structure = rotateRight(this, max_bits);
-        while (interval_structure.value.mod(BigInteger.valueOf(2)).equals(BigInteger.ZERO)){
-            interval_structure = rotateRight(interval_structure, max_bits);
-        }
-        return interval_structure;
+        return previous_inversion(this, max_bits);
     }
 
 
     /**
      * Rotate the [collection] left to the next mode/inversion, assuming 
-     * it has [max_bits]. 
+     * it has [max_bits]: the highest flipped bit becomes the root. The
+     * rotation is found in one step (see ModeEngine).
      */
     public static IntervalBase next_inversion(IntervalBase collection, int max_bits){
-        IntervalBase interval_structure = rotateRight(collection, max_bits);
-        while (interval_structure.value.mod(BigInteger.valueOf(2)).equals(BigInteger.ZERO)){
-            interval_structure = rotateRight(interval_structure, max_bits);
+        if (max_bits < Long.SIZE){
+            return new IntervalBase(ModeEngine.next(collection.value.longValue(), max_bits));
         }
-        return interval_structure;
+        BigInteger bits = collection.value.and(mask(max_bits));
+        if (bits.signum() == 0){
+            return new IntervalBase(bits);
+        }
+        return rotate(bits, bits.bitLength() - 1, max_bits);
     }
 
 
@@ -133,11 +174,19 @@ public class IntervalBase implements Iterable<IntervalBase>{
      * it has [max_bits]. 
      */
     public IntervalBase next_inversion(int max_bits){
-        IntervalBase interval_structure = rotateRight(this, max_bits);
-        while (interval_structure.value.mod(BigInteger.valueOf(2)).equals(BigInteger.ZERO)){
-            interval_structure = rotateRight(interval_structure, max_bits);
+        return next_inversion(this, max_bits);
+    }
+
+
+    /**
+     * Rotate [bits] (already limited to [max_bits]) right [n] times, on a
+     * WidePitchSet if it is wide enough.
+     */
+    private static IntervalBase rotate(BigInteger bits, int n, int max_bits){
+        if (max_bits <= WidePitchSet.CAPACITY){
+            return WidePitchSet.valueOf(bits).rotateRight(n, max_bits).toIntervalBase();
         }
-        return interval_structure;
+        return new IntervalBase(bits.shiftRight(n).or(bits.shiftLeft(max_bits - n)).and(mask(max_bits)));
     }
 
 
@@ -146,8 +195,7 @@ public class IntervalBase implements Iterable<IntervalBase>{
      * interval.
      */
     public boolean isValidInterval(){
-        return this.bitCount() == 2 & this.value.mod(BigInteger.valueOf(2))
-                                                .equals(BigInteger.ONE);
+        return this.bitCount() == 2 & this.value.testBit(0);
     }
 
 
@@ -168,28 +216,24 @@ public class IntervalBase implements Iterable<IntervalBase>{
     /**
      * Return an iterator that returns the individual bits that make
      * up the structure.
+     * 
+     * Each bit is returned as an interval, i.e. with the unison bit also
+     * flipped (bit 4 -> 10001 = DITONE). Use bitIterator(), bits() or
+     * forEachBit() for the raw positions without allocating instances.
      */
     @Override
     public Iterator<IntervalBase> iterator(){
         Iterator<IntervalBase> it = new Iterator<IntervalBase>(){
-            private IntervalBase integer = IntervalBase.valueOf(value);
+            private final PrimitiveIterator.OfInt positions = bitIterator();
 
             @Override
             public boolean hasNext(){
-                return ! (integer.equals(BigInteger.ZERO));
+                return positions.hasNext();
             }
             @Override
             public IntervalBase next(){
-                IntervalBase current_bit = integer.and(IntervalBase.not(integer).add(1));
-                integer = IntervalBase.valueOf(integer.value.xor(current_bit.value));
-
-                if (current_bit.value.mod(BigInteger.valueOf(2)).equals(BigInteger.ZERO)){
-                   return current_bit.add(1);
-                }
-                else
-                {
-                   return current_bit;
-                }
+                int position = positions.nextInt();
+                return IntervalBase.valueOf(BigInteger.ONE.shiftLeft(position).setBit(0));
             }
             @Override
             public void remove(){
@@ -200,6 +244,80 @@ public class IntervalBase implements Iterable<IntervalBase>{
     }
 
 
+    /**
+     * Return the position of the first flipped bit at or above [from], or
+     * -1 if there is none. Does not allocate.
+     */
+    public int nextSetBit(int from){
+        if (this.isNarrow()){
+            return PitchSet.nextSetBit(this.value.longValue(), from);
+        }
+        for (int i = Math.max(from, 0); i < this.value.bitLength(); i++){
+            if (this.value.testBit(i)){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+    /**
+     * Return an iterator over the positions of the flipped bits, from
+     * the lowest up. Apart from the iterator itself, nothing is allocated.
+     */
+    public PrimitiveIterator.OfInt bitIterator(){
+        return new PrimitiveIterator.OfInt(){
+            private int next = nextSetBit(0);
+
+            @Override
+            public boolean hasNext(){
+                return next >= 0;
+            }
+            @Override
+            public int nextInt(){
+                if (next < 0){
+                    throw new NoSuchElementException();
+                }
+                int position = next;
+                next = nextSetBit(position + 1);
+                return position;
+            }
+        };
+    }
+
+
+    /**
+     * Return a stream of the positions of the flipped bits, from the
+     * lowest up.
+     */
+    public IntStream bits(){
+        return StreamSupport.intStream(
+            Spliterators.spliterator(bitIterator(), this.bitCount(),
+                Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.SORTED 
+                | Spliterator.NONNULL | Spliterator.IMMUTABLE),
+            false);
+    }
+
+
+    /**
+     * Pass the position of each flipped bit, from the lowest up, to the
+     * given [action]. Does not allocate.
+     */
+    public void forEachBit(IntConsumer action){
+        if (this.isNarrow()){
+            long bits = this.value.longValue();
+            while (bits != 0){
+                action.accept(Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+            return;
+        }
+        for (int i = nextSetBit(0); i >= 0; i = nextSetBit(i + 1)){
+            action.accept(i);
+        }
+    }
+
+
     /**
      * Secondary constructor following BigInteger method.
      * 
@@ -331,9 +449,13 @@ public class IntervalBase implements Iterable<IntervalBase>{
      * it has [max_bits].
      */
     public static List<IntervalBase> inversions(IntervalBase interval_structure, int max_bits){
+        if (max_bits == Constants.TONES & interval_structure.isNarrow()
+                && interval_structure.bitLength() <= Constants.TONES){
+            return catalogInversions((int) interval_structure.value.longValue());
+        }
         List<IntervalBase> rotations = new ArrayList<IntervalBase>();
         for (int i=0; i < interval_structure.bitCount(); i++){
-            interval_structure = IntervalBase.next_inversion(interval_structure, max_bits);
+            interval_structure = IntervalBase.previous_inversion(interval_structure, max_bits);
             rotations.add(interval_structure);
         }
         return rotations;
@@ -343,11 +465,19 @@ public class IntervalBase implements Iterable<IntervalBase>{
      * assuming it has [max_bits].
      */
     public List<IntervalBase> inversions(int max_bits){
-        List<IntervalBase> rotations = new ArrayList<IntervalBase>();
-        IntervalBase interval_structure = new IntervalBase(this);
-        for (int i=0; i < this.bitCount(); i++){
-            interval_structure = IntervalBase.next_inversion(interval_structure, max_bits);
-            rotations.add(interval_structure);
+        return IntervalBase.inversions(this, max_bits);
+    }
+    /**
+     * Read the inversions of a 12-tone [mask] from the PitchClassCatalog,
+     * in the same order as the rotation loop: starting with the mode on
+     * the first flipped bit above the root and wrapping around.
+     */
+    private static List<IntervalBase> catalogInversions(int mask){
+        int count = PitchClassCatalog.modeCount(mask);
+        List<IntervalBase> rotations = new ArrayList<IntervalBase>(count);
+        int first = mask & 1;
+        for (int i=0; i < count; i++){
+            rotations.add(new IntervalBase(PitchClassCatalog.mode(mask, (first + i) % count)));
         }
         return rotations;
     }
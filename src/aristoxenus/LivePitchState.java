@@ -0,0 +1,277 @@
+package src.aristoxenus;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.ShortMessage;
+
+import src.aristoxenus.Classes.Identified;
+import src.aristoxenus.Classes.LiveAnalysis;
+
+/**
+ * The notes sounding right now, named as they change.
+ *
+ * Note-on and note-off events arrive from any number of threads, either
+ * as javax.sound.midi messages (this is a Receiver) or as raw MIDI bytes
+ * through a ByteParser. The sounding notes are a WidePitchSet of MIDI
+ * note numbers, replaced by compare-and-set, so producers never block
+ * one another.
+ *
+ * The producer whose event changes the set of pitch classes names it on
+ * its own thread and hands the analysis to the listeners (an event that
+ * only adds or removes an octave doubling keeps the last name):
+ * Identification finds the chord, mode or interval, a Renderer gives the
+ * plain names of the notes, and Nomenclature.bestHeptatonic (or
+ * bestSpelling, for other sizes) spells the pitch classes from the root.
+ * Every step is a table read or a memoized lookup, so an event is
+ * labelled within microseconds.
+ *
+ * Listeners may be called from several threads at once, and two close
+ * events can arrive out of order; compare LiveAnalysis.sequence, or read
+ * latest(), when order matters.
+ */
+public final class LivePitchState implements Receiver {
+    /** Number of MIDI note numbers. */
+    public static final int NOTES = 128;
+
+    private static final int ALL_SOUND_OFF = 120;
+    private static final int ALL_NOTES_OFF = 123;
+
+    /** Receives each new analysis. */
+    public interface Listener {
+        void changed(LiveAnalysis analysis);
+    }
+
+    /** The sounding notes, and the number of events that changed them. */
+    private static final class State {
+        final long sequence;
+        final WidePitchSet notes;
+
+        State(long sequence, WidePitchSet notes) {
+            this.sequence = sequence;
+            this.notes = notes;
+        }
+    }
+
+    private final AtomicReference<State> state =
+            new AtomicReference<State>(new State(0, WidePitchSet.EMPTY));
+    private final AtomicReference<LiveAnalysis> published;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+    public LivePitchState() {
+        this.published = new AtomicReference<LiveAnalysis>(
+                analyze(0, System.nanoTime(), WidePitchSet.EMPTY));
+        // Build the naming tables now rather than on the first event.
+        analyze(0, 0, WidePitchSet.valueOf(Constants.ChordStructures.MAJOR_TRIAD));
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Return the MIDI note numbers sounding now. */
+    public WidePitchSet sounding() {
+        return state.get().notes;
+    }
+
+    /** Return the analysis of the most recent change. */
+    public LiveAnalysis latest() {
+        return published.get();
+    }
+
+    /** Start a [midi_note] (0 to 127). */
+    public void noteOn(int midi_note) {
+        update(checked(midi_note), true);
+    }
+
+    /** Stop a [midi_note] (0 to 127). */
+    public void noteOff(int midi_note) {
+        update(checked(midi_note), false);
+    }
+
+    /** Stop every note. */
+    public void allNotesOff() {
+        update(-1, false);
+    }
+
+    /**
+     * Apply a javax.sound.midi [message]: note on, note off, and the all
+     * notes off / all sound off controllers. Other messages are ignored.
+     */
+    @Override
+    public void send(MidiMessage message, long time_stamp) {
+        if (message instanceof ShortMessage) {
+            ShortMessage short_message = (ShortMessage) message;
+            event(short_message.getCommand(), short_message.getData1(), short_message.getData2());
+        }
+    }
+
+    @Override
+    public void close() {
+        listeners.clear();
+    }
+
+    /**
+     * Return a parser of raw MIDI bytes that feeds this state. A parser
+     * keeps the running status of one byte stream, so each producer needs
+     * its own.
+     */
+    public ByteParser parser() {
+        return new ByteParser();
+    }
+
+    /**
+     * Reads a raw MIDI byte stream: channel messages with running status,
+     * skipping system exclusive and real-time bytes. Not thread-safe.
+     */
+    public final class ByteParser {
+        private int status = 0;
+        private int first = -1;
+        private boolean exclusive = false;
+
+        private ByteParser() {}
+
+        /** Read [length] bytes of [bytes] from [offset]. */
+        public void parse(byte[] bytes, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                parse(bytes[i] & 0xFF);
+            }
+        }
+
+        /** Read one [unsigned_byte]. */
+        public void parse(int unsigned_byte) {
+            if (unsigned_byte >= 0xF8) {
+                return;
+            }
+            if (unsigned_byte >= 0xF0) {
+                exclusive = unsigned_byte == 0xF0;
+                status = 0;
+                return;
+            }
+            if (unsigned_byte >= 0x80) {
+                exclusive = false;
+                status = unsigned_byte;
+                first = -1;
+                return;
+            }
+            if (exclusive || status == 0) {
+                return;
+            }
+            int command = status & 0xF0;
+            boolean one_byte = command == ShortMessage.PROGRAM_CHANGE
+                    || command == ShortMessage.CHANNEL_PRESSURE;
+            if (one_byte) {
+                return;
+            }
+            if (first < 0) {
+                first = unsigned_byte;
+                return;
+            }
+            event(command, first, unsigned_byte);
+            first = -1;
+        }
+    }
+
+    private void event(int command, int data1, int data2) {
+        switch (command) {
+            case ShortMessage.NOTE_ON:
+                update(data1, data2 > 0);
+                break;
+            case ShortMessage.NOTE_OFF:
+                update(data1, false);
+                break;
+            case ShortMessage.CONTROL_CHANGE:
+                if (data1 == ALL_NOTES_OFF || data1 == ALL_SOUND_OFF) {
+                    update(-1, false);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Turn a [midi_note] [on] or off (every note off, if it is -1), then
+     * publish the result, naming it afresh only if its pitch classes
+     * changed, and tell the listeners if they did.
+     */
+    private void update(int midi_note, boolean on) {
+        long nanos = System.nanoTime();
+        State current;
+        WidePitchSet notes;
+        do {
+            current = state.get();
+            if (midi_note < 0) {
+                notes = WidePitchSet.EMPTY;
+            } else {
+                notes = on ? current.notes.setBit(midi_note) : current.notes.clearBit(midi_note);
+            }
+            if (notes.equals(current.notes)) {
+                return;
+            }
+        } while (!state.compareAndSet(current, new State(current.sequence + 1, notes)));
+
+        long sequence = current.sequence + 1;
+        int mask = PitchClassCatalog.maskOf(notes);
+        LiveAnalysis named = null;
+        LiveAnalysis analysis;
+        LiveAnalysis previous;
+        do {
+            previous = published.get();
+            if (previous.sequence >= sequence) {
+                return;
+            }
+            // An octave doubling keeps the pitch classes, and so the name
+            // and spelling: only the notes themselves need rendering.
+            if (PitchClassCatalog.maskOf(previous.notes) == mask) {
+                analysis = new LiveAnalysis(sequence, nanos, notes, previous.name,
+                        Renderer.binomial().render(notes), previous.spelled);
+            } else {
+                if (named == null) {
+                    named = analyze(sequence, nanos, notes);
+                }
+                analysis = named;
+            }
+        } while (!published.compareAndSet(previous, analysis));
+
+        if (PitchClassCatalog.maskOf(previous.notes) != PitchClassCatalog.maskOf(notes)) {
+            for (Listener listener : listeners) {
+                listener.changed(analysis);
+            }
+        }
+    }
+
+    /** Name the sounding [notes]. */
+    private static LiveAnalysis analyze(long sequence, long nanos, WidePitchSet notes) {
+        if (notes.isEmpty()) {
+            return new LiveAnalysis(sequence, nanos, notes, null,
+                    Collections.<String>emptyList(), Collections.<String>emptyList());
+        }
+        int mask = PitchClassCatalog.maskOf(notes);
+        Identified name = Identification.identify(mask);
+        int root = (name != null) ? name.root : notes.lowestSetBit() % Constants.TONES;
+        String root_name = Nomenclature.chromatic().get(root);
+        IntervalBase structure = new IntervalBase(PitchSet.rotateRight(mask, root, Constants.TONES));
+        List<String> spelled = (Integer.bitCount(mask) == Constants.NOTES)
+                ? Nomenclature.bestHeptatonic(root_name, structure)
+                : Nomenclature.bestSpelling(root_name, structure);
+        List<String> plain = Renderer.binomial().render(notes);
+        return new LiveAnalysis(sequence, nanos, notes, name, plain, spelled);
+    }
+
+    private static int checked(int midi_note) {
+        if (midi_note < 0 || midi_note >= NOTES) {
+            throw new IllegalArgumentException(
+                    String.format("MIDI note %s is not 0 to 127.", midi_note));
+        }
+        return midi_note;
+    }
+}
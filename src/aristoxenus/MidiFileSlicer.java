@@ -0,0 +1,406 @@
+package src.aristoxenus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Cut Standard MIDI Files into harmonic slices: spans of ticks in which
+ * the same notes are sounding.
+ *
+ * A file is memory-mapped and read in place. Each track has a cursor
+ * (position, tick of its next event, running status) held in primitive
+ * arrays, and the tracks are merged by tick, so nothing is allocated per
+ * event. Whenever the sounding notes change, the span since the last
+ * change is handed to a Slices callback as a tick range and the two words
+ * of a WidePitchSet of MIDI note numbers. Spans of silence are skipped.
+ *
+ * Notes on the percussion channel (channel 10, index 9) are left out, and
+ * a note struck twice on different channels sounds until both are
+ * released. Format 0 and 1 files are read; format 2 files hold
+ * independent sequences and are rejected.
+ */
+public final class MidiFileSlicer {
+    /** Channel index (0 to 15) of General MIDI percussion. */
+    public static final int PERCUSSION_CHANNEL = 9;
+
+    private static final int HEADER_ID = 0x4D546864;
+    private static final int TRACK_ID = 0x4D54726B;
+    private static final int HEADER_LENGTH = 6;
+    private static final int CHUNK_HEADER = 8;
+    private static final int META = 0xFF;
+    private static final int END_OF_TRACK = 0x2F;
+    private static final int SYSEX = 0xF0;
+    private static final int SYSEX_CONTINUATION = 0xF7;
+
+    /** Files per task when slicing in parallel. */
+    private static final int FILES_PER_TASK = 1;
+
+    /**
+     * Receives the slices of a file. When files are sliced in parallel,
+     * the callback is called from several threads, but the slices of any
+     * one file arrive in order from one thread.
+     */
+    public interface Slices {
+        /**
+         * The notes [low] and [high] (the words of a WidePitchSet of MIDI
+         * note numbers) sound from [start_tick] until [end_tick] in
+         * [file].
+         */
+        void slice(int file, long start_tick, long end_tick, long low, long high);
+
+        /**
+         * [file] is about to be sliced, with [division] ticks per quarter
+         * note. A negative [division] is SMPTE timing: its high byte is
+         * minus the frames per second (-24, -25, -29 or -30) and its low
+         * byte the ticks per frame.
+         */
+        default void begin(int file, int division) {}
+
+        /** [file] could not be read. */
+        default void failed(int file, IOException error) {}
+    }
+
+    private MidiFileSlicer() {}
+
+    /**
+     * Slice the MIDI file at [path] as file 0.
+     *
+     * @return The number of slices.
+     * @throws IOException If the file cannot be read or is not a format 0
+     *                     or 1 Standard MIDI File.
+     */
+    public static long slice(Path path, Slices slices) throws IOException {
+        return slice(path, 0, slices);
+    }
+
+    /**
+     * Slice the Standard MIDI File in [data], from its position to its
+     * limit, as [file].
+     *
+     * @return The number of slices.
+     */
+    public static long slice(ByteBuffer data, int file, Slices slices) throws IOException {
+        return new Cursor(data.slice().order(ByteOrder.BIG_ENDIAN), file).run(slices);
+    }
+
+    /**
+     * Slice every file of [paths] in parallel on the common pool.
+     *
+     * @see #sliceAll(List, Slices, ForkJoinPool)
+     */
+    public static long sliceAll(List<Path> paths, Slices slices) {
+        return sliceAll(paths, slices, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Slice every file of [paths] in parallel on the [pool]. Each file is
+     * known to the callback by its index in [paths]; a file that cannot be
+     * read is reported to Slices.failed and the rest carry on.
+     *
+     * @return The number of slices across all files.
+     */
+    public static long sliceAll(List<Path> paths, Slices slices, ForkJoinPool pool) {
+        return pool.invoke(new SliceTask(paths, slices, 0, paths.size()));
+    }
+
+    private static long slice(Path path, int file, Slices slices) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return slice(data, file, slices);
+        }
+    }
+
+    /**
+     * The state of one file being sliced: a cursor per track, and the
+     * notes sounding so far.
+     */
+    private static final class Cursor {
+        private final ByteBuffer data;
+        private final int file;
+        private int[] positions;
+        private int[] ends;
+        private long[] ticks;
+        private int[] statuses;
+        private final int[] holds = new int[LivePitchState.NOTES];
+        private long low = 0;
+        private long high = 0;
+
+        private Cursor(ByteBuffer data, int file) {
+            this.data = data;
+            this.file = file;
+        }
+
+        private long run(Slices slices) throws IOException {
+            int division = readHeader();
+            slices.begin(file, division);
+
+            long count = 0;
+            long last_tick = 0;
+            long since = 0;
+            long shown_low = 0;
+            long shown_high = 0;
+            while (true) {
+                int track = nextTrack();
+                if (track < 0) {
+                    break;
+                }
+                long now = ticks[track];
+                if (now > last_tick) {
+                    // Every event at last_tick is in: close the span
+                    // before it if the notes changed.
+                    if (low != shown_low | high != shown_high) {
+                        if ((shown_low | shown_high) != 0 && last_tick > since) {
+                            slices.slice(file, since, last_tick, shown_low, shown_high);
+                            count++;
+                        }
+                        shown_low = low;
+                        shown_high = high;
+                        since = last_tick;
+                    }
+                    last_tick = now;
+                }
+                event(track);
+            }
+            if (low != shown_low | high != shown_high) {
+                if ((shown_low | shown_high) != 0 && last_tick > since) {
+                    slices.slice(file, since, last_tick, shown_low, shown_high);
+                    count++;
+                }
+                shown_low = low;
+                shown_high = high;
+                since = last_tick;
+            }
+            // Notes never released end with the last track.
+            long end = 0;
+            for (long tick : ticks) {
+                end = Math.max(end, tick);
+            }
+            if ((shown_low | shown_high) != 0 && end > since) {
+                slices.slice(file, since, end, shown_low, shown_high);
+                count++;
+            }
+            return count;
+        }
+
+        /**
+         * Read the header chunk and find the tracks; return the division.
+         */
+        private int readHeader() throws IOException {
+            if (data.limit() < CHUNK_HEADER + HEADER_LENGTH || data.getInt(0) != HEADER_ID) {
+                throw new IOException("Not a Standard MIDI File.");
+            }
+            int length = data.getInt(4);
+            int format = data.getShort(8) & 0xFFFF;
+            int tracks = data.getShort(10) & 0xFFFF;
+            int division = data.getShort(12);
+            if (length < HEADER_LENGTH) {
+                throw new IOException("Not a Standard MIDI File.");
+            }
+            if (format > 1) {
+                throw new IOException(String.format("Format %s files are not supported.", format));
+            }
+            positions = new int[tracks];
+            ends = new int[tracks];
+            ticks = new long[tracks];
+            statuses = new int[tracks];
+
+            long position = CHUNK_HEADER + (long) length;
+            int track = 0;
+            while (track < tracks) {
+                if (position + CHUNK_HEADER > data.limit()) {
+                    throw new IOException(String.format(
+                            "Expected %s tracks but found %s.", tracks, track));
+                }
+                int id = data.getInt((int) position);
+                long start = position + CHUNK_HEADER;
+                long end = start + Integer.toUnsignedLong(data.getInt((int) position + 4));
+                if (end > data.limit()) {
+                    throw truncated();
+                }
+                position = end;
+                // Chunks of other types are skipped, as the standard asks.
+                if (id == TRACK_ID) {
+                    positions[track] = (int) start;
+                    ends[track] = (int) end;
+                    if (start < end) {
+                        ticks[track] = readVariable(track);
+                    }
+                    track++;
+                }
+            }
+            return division;
+        }
+
+        /**
+         * Return the track whose next event comes first (the lowest track
+         * on a tie), or -1 if every track is done.
+         */
+        private int nextTrack() {
+            int next = -1;
+            for (int track = 0; track < positions.length; track++) {
+                if (positions[track] < ends[track]
+                        && (next < 0 || ticks[track] < ticks[next])) {
+                    next = track;
+                }
+            }
+            return next;
+        }
+
+        /** Apply the next event of a [track] and read the delta after it. */
+        private void event(int track) throws IOException {
+            int first = readByte(track);
+            if (first == META) {
+                int type = readByte(track);
+                int length = (int) readVariable(track);
+                skip(track, length);
+                statuses[track] = 0;
+                if (type == END_OF_TRACK) {
+                    positions[track] = ends[track];
+                    return;
+                }
+            } else if (first == SYSEX | first == SYSEX_CONTINUATION) {
+                int length = (int) readVariable(track);
+                skip(track, length);
+                statuses[track] = 0;
+            } else {
+                int status;
+                int data1;
+                if (first >= SYSEX) {
+                    throw new IOException(String.format("Unexpected status byte %02X.", first));
+                } else if (first >= 0x80) {
+                    status = first;
+                    statuses[track] = status;
+                    data1 = readData(track);
+                } else {
+                    status = statuses[track];
+                    if (status == 0) {
+                        throw new IOException("Data byte without a status byte.");
+                    }
+                    data1 = first;
+                }
+                int command = status & 0xF0;
+                if (command != 0xC0 & command != 0xD0) {
+                    int data2 = readData(track);
+                    if ((status & 0x0F) != PERCUSSION_CHANNEL) {
+                        if (command == 0x90 & data2 > 0) {
+                            press(data1);
+                        } else if (command == 0x80 | command == 0x90) {
+                            release(data1);
+                        }
+                    }
+                }
+            }
+            if (positions[track] < ends[track]) {
+                ticks[track] += readVariable(track);
+            }
+        }
+
+        private void press(int note) {
+            if (holds[note]++ == 0) {
+                if (note < Long.SIZE) {
+                    low |= 1L << note;
+                } else {
+                    high |= 1L << (note - Long.SIZE);
+                }
+            }
+        }
+
+        private void release(int note) {
+            if (holds[note] > 0 && --holds[note] == 0) {
+                if (note < Long.SIZE) {
+                    low &= ~(1L << note);
+                } else {
+                    high &= ~(1L << (note - Long.SIZE));
+                }
+            }
+        }
+
+        private int readByte(int track) throws IOException {
+            int position = positions[track];
+            if (position >= ends[track]) {
+                throw truncated();
+            }
+            positions[track] = position + 1;
+            return data.get(position) & 0xFF;
+        }
+
+        /** Read a data byte, which must be below 0x80. */
+        private int readData(int track) throws IOException {
+            int b = readByte(track);
+            if (b >= 0x80) {
+                throw new IOException("Data byte expected.");
+            }
+            return b;
+        }
+
+        /** Read a variable-length quantity (at most 4 bytes). */
+        private long readVariable(int track) throws IOException {
+            long value = 0;
+            for (int i = 0; i < 4; i++) {
+                int b = readByte(track);
+                value = (value << 7) | (b & 0x7F);
+                if (b < 0x80) {
+                    return value;
+                }
+            }
+            throw new IOException("Variable-length quantity is too long.");
+        }
+
+        private void skip(int track, int length) throws IOException {
+            if (length > ends[track] - positions[track]) {
+                throw truncated();
+            }
+            positions[track] += length;
+        }
+
+        private IOException truncated() {
+            return new IOException("MIDI file is truncated.");
+        }
+    }
+
+    /**
+     * Slice files [from] to [to], splitting the range in half until it is
+     * small enough.
+     */
+    @SuppressWarnings("serial")
+    private static final class SliceTask extends RecursiveTask<Long> {
+        private final List<Path> paths;
+        private final Slices slices;
+        private final int from;
+        private final int to;
+
+        private SliceTask(List<Path> paths, Slices slices, int from, int to) {
+            this.paths = paths;
+            this.slices = slices;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from > FILES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                SliceTask left = new SliceTask(paths, slices, from, middle);
+                left.fork();
+                long right = new SliceTask(paths, slices, middle, to).compute();
+                return left.join() + right;
+            }
+            long count = 0;
+            for (int file = from; file < to; file++) {
+                try {
+                    count += slice(paths.get(file), file, slices);
+                } catch (IOException e) {
+                    slices.failed(file, e);
+                }
+            }
+            return count;
+        }
+    }
+}
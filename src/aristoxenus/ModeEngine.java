@@ -0,0 +1,130 @@
+package src.aristoxenus;
+
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Modes and inversions of interval structures held in a primitive word.
+ *
+ * A mode is the structure rotated within [max_bits] so that one of its
+ * flipped bits becomes the root. Rather than rotating one bit at a time
+ * until the root is flipped, the rotation is read straight off the word:
+ * the trailing zeros above the root give the distance to the next flipped
+ * bit, and the leading zeros give the distance down from the highest.
+ *
+ * Mode n is the rotation onto the nth flipped bit counting from the
+ * lowest, as in PitchClassCatalog, but any width up to 64 bits works.
+ */
+public final class ModeEngine {
+
+    private ModeEngine() {}
+
+    /**
+     * Rotate [mask] left to the next mode/inversion, assuming it has
+     * [max_bits]: the highest flipped bit becomes the root. An empty
+     * structure is returned as is.
+     */
+    public static long next(long mask, int max_bits) {
+        mask &= checkedMask(max_bits);
+        if (mask == 0) {
+            return 0;
+        }
+        int highest = Long.SIZE - 1 - Long.numberOfLeadingZeros(mask);
+        return PitchSet.rotateLeft(mask, max_bits - highest, max_bits);
+    }
+
+    /**
+     * Rotate [mask] right to the previous mode/inversion, assuming it has
+     * [max_bits]: the lowest flipped bit above the root becomes the root.
+     * An empty structure is returned as is.
+     */
+    public static long previous(long mask, int max_bits) {
+        mask &= checkedMask(max_bits);
+        long above = mask & ~1L;
+        if (above == 0) {
+            return mask;
+        }
+        return PitchSet.rotateRight(mask, Long.numberOfTrailingZeros(above), max_bits);
+    }
+
+    /** Return the number of modes of [mask] with [max_bits]. */
+    public static int modeCount(long mask, int max_bits) {
+        return Long.bitCount(mask & checkedMask(max_bits));
+    }
+
+    /**
+     * Return the [n]th mode of [mask] with [max_bits]: the structure
+     * rotated so that its [n]th flipped bit (counting from the lowest)
+     * becomes the root.
+     */
+    public static long mode(long mask, int n, int max_bits) {
+        long rest = mask & checkedMask(max_bits);
+        if (n < 0 | n >= Long.bitCount(rest)) {
+            throw new IndexOutOfBoundsException(
+                    String.format("Mode %s is out of range for %s.", n, mask));
+        }
+        for (int i = 0; i < n; i++) {
+            rest &= rest - 1;
+        }
+        return PitchSet.rotateRight(mask, Long.numberOfTrailingZeros(rest), max_bits);
+    }
+
+    /**
+     * Copy all modes of [mask] with [max_bits] (at most 32) into the
+     * caller-supplied array [modes] and return how many were written.
+     */
+    public static int modes(int mask, int max_bits, int[] modes) {
+        long bits = Integer.toUnsignedLong(mask) & checkedMask(max_bits, Integer.SIZE);
+        int count = 0;
+        for (long rest = bits; rest != 0; rest &= rest - 1) {
+            modes[count++] = (int) PitchSet.rotateRight(bits, Long.numberOfTrailingZeros(rest), max_bits);
+        }
+        return count;
+    }
+
+    /**
+     * Return the modes of [mask] with [max_bits] (at most 32) as packed
+     * (mode index, mode) pairs; see modeIndex and modeMask.
+     */
+    public static LongStream modeStream(int mask, int max_bits) {
+        int[] modes = new int[Integer.SIZE];
+        int count = modes(mask, max_bits, modes);
+        return IntStream.range(0, count).mapToLong(n -> pair(n, modes[n]));
+    }
+
+    /**
+     * Return the modes of each of the [masks] with [max_bits] (at most 32)
+     * as packed (mode index, mode) pairs, one structure after another.
+     * The stream can be made parallel for bulk analysis of scale families.
+     */
+    public static LongStream modeStream(IntStream masks, int max_bits) {
+        checkedMask(max_bits, Integer.SIZE);
+        return masks.mapToObj(mask -> modeStream(mask, max_bits)).flatMapToLong(modes -> modes);
+    }
+
+    /** Return the mode index of a packed (mode index, mode) [pair]. */
+    public static int modeIndex(long pair) {
+        return (int) (pair >>> Integer.SIZE);
+    }
+
+    /** Return the mode of a packed (mode index, mode) [pair]. */
+    public static int modeMask(long pair) {
+        return (int) pair;
+    }
+
+    private static long pair(int index, int mode) {
+        return ((long) index << Integer.SIZE) | Integer.toUnsignedLong(mode);
+    }
+
+    private static long checkedMask(int max_bits) {
+        return checkedMask(max_bits, Long.SIZE);
+    }
+
+    private static long checkedMask(int max_bits, int limit) {
+        if (max_bits <= 0 || max_bits > limit) {
+            throw new IllegalArgumentException(
+                    String.format("Width %s must be 1 to %s bits.", max_bits, limit));
+        }
+        return PitchSet.mask(max_bits);
+    }
+}
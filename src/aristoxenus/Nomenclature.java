@@ -9,10 +9,10 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import src.aristoxenus.Constants.Keywords;
-import src.aristoxenus.Classes.ScaleSynopsis;
+import src.aristoxenus.Classes.NoteMatch;
+import src.aristoxenus.Classes.PitchInterval;
 
 /**
  * A collection of functions pertaining to generating, encoding, and decoding
@@ -65,14 +65,77 @@ public class Nomenclature {
         return new_scale;
     }
 
+    /**
+     * Lazily built, immutable tables derived from the enharmonic decoder.
+     * 
+     * The holder class is only initialized on first use, and the JVM
+     * guarantees that initialization happens once and is visible to every
+     * thread, so the tables can be shared freely.
+     */
+    private static final class EnharmonicIndex {
+        static final Map<String, String> DECODER = Collections.unmodifiableMap(
+                buildEnharmonicDecoder());
+        static final Map<String, List<String>> EQUIVALENTS = buildEquivalents(DECODER);
+        static final Set<String> CHROMATIC_BINOMIALS = Set.copyOf(
+                chromatic(Constants.BINOMIALS));
+        static final Map<String, Integer> CHROMATIC_INDEX = indexOf(
+                chromatic(Constants.BINOMIALS));
+        static final List<String> LEGAL_CHORD_NAMES = DECODER.keySet()
+                .stream()
+                .filter(key -> key.length() < 2)
+                .sorted()
+                .toList();
+
+        /**
+         * Map each note of a [chromatic_scale] to its position.
+         */
+        private static Map<String, Integer> indexOf(List<String> chromatic_scale) {
+            Map<String, Integer> index = new HashMap<>();
+            for (int i = 0; i < chromatic_scale.size(); i++) {
+                index.put(chromatic_scale.get(i), i);
+            }
+            return Map.copyOf(index);
+        }
+
+        /**
+         * Invert the [decoder] so that each binomial (or natural) maps to
+         * every spelling that decodes to it, shortest spellings first.
+         */
+        private static Map<String, List<String>> buildEquivalents(Map<String, String> decoder) {
+            Map<String, List<String>> equivalents = new HashMap<>();
+            for (Map.Entry<String, String> pair : decoder.entrySet()) {
+                equivalents.computeIfAbsent(pair.getValue(), key -> new ArrayList<String>())
+                        .add(pair.getKey());
+            }
+            Map<String, List<String>> frozen = new HashMap<>();
+            for (Map.Entry<String, List<String>> pair : equivalents.entrySet()) {
+                frozen.put(pair.getKey(), pair.getValue()
+                        .stream()
+                        .sorted(Comparator.comparingInt(String::length)
+                                .thenComparing(Comparator.naturalOrder()))
+                        .toList());
+            }
+            return Map.copyOf(frozen);
+        }
+    }
+
     /**
      * Return a table mapping all possible enharmonic notes names to their
      * binomial name equivalents.
      * 
+     * The table is built once and shared, so it cannot be modified.
+     * 
      * @return A map of all possible note and accidental combinations
      *         and their binomial equivalents.
      */
     public static Map<String, String> enharmonicDecoder() {
+        return EnharmonicIndex.DECODER;
+    }
+
+    /**
+     * Build the table returned by enharmonicDecoder().
+     */
+    private static Map<String, String> buildEnharmonicDecoder() {
 
         Map<String, String> decoder = new HashMap<>();
         List<String> chromatic_binomials = chromatic(Constants.BINOMIALS);
@@ -113,17 +176,12 @@ public class Nomenclature {
      * Get all enharmonic variant names, with up to 11 sharps/flats, for a
      * given [note_name].
      * 
-     * @param note_name Any legal note name.
-     * @return A list of enharmonically-equivalent names.
+     * @param note_name A natural or binomial note name.
+     * @return A list of enharmonically-equivalent names, shortest
+     *         first. The list cannot be modified.
      */
     public static List<String> getEnharmonicEquivalents(String note_name) {
-        List<String> equivalents = new ArrayList<String>();
-        for (Map.Entry<String, String> pair : enharmonicDecoder().entrySet()) {
-            if (pair.getValue() == note_name) {
-                equivalents.add(pair.getKey());
-            }
-        }
-        return equivalents;
+        return EnharmonicIndex.EQUIVALENTS.getOrDefault(note_name, List.of());
     }
 
     /**
@@ -132,13 +190,7 @@ public class Nomenclature {
      * @return A list of all legal chord symbols.
      */
     public static List<String> legalChordNames() {
-        List<String> names = new ArrayList<String>();
-        for (String key : enharmonicDecoder().keySet()) {
-            if (key.length() < 2) {
-                names.add(key);
-            }
-        }
-        return names;
+        return EnharmonicIndex.LEGAL_CHORD_NAMES;
     }
 
     /**
@@ -166,7 +218,7 @@ public class Nomenclature {
      */
     private static boolean isHomonymous(String note_one, String note_two) {
         try {
-            return identity(note_one) == identity(note_two);
+            return identity(note_one).equals(identity(note_two));
         } catch (Exception e) {
             return false;
         }
@@ -182,17 +234,16 @@ public class Nomenclature {
      */
     public static String decodeEnharmonic(String note_name) {
         if (Character.isDigit(note_name.charAt(note_name.length() - 1))) {
-            note_name = note_name.substring(note_name.length() - 1, note_name.length());
+            note_name = note_name.substring(0, note_name.length() - 1);
         }
-        Map<String, String> decoder = enharmonicDecoder();
-        if (chromatic(Constants.BINOMIALS).contains(note_name)) {
+        if (EnharmonicIndex.CHROMATIC_BINOMIALS.contains(note_name)) {
             return note_name;
         }
-        if (!decoder.containsKey(note_name)) {
+        String decoded = EnharmonicIndex.DECODER.get(note_name);
+        if (decoded == null) {
             throw new IllegalArgumentException(String.format("Note name %s not recognized.", note_name));
-        } else {
-            return decoder.get(note_name);
         }
+        return decoded;
     }
 
     /**
@@ -207,21 +258,18 @@ public class Nomenclature {
      *         other name, depending on the direction.
      */
     public static String encodeEnharmonic(String note_value, String note_name) {
-        if (!Constants.NATURALS.contains(note_value)) {
+        if (!Constants.NATURALS.contains(note_name)) {
             throw new IllegalArgumentException("Target note name must be from the naturals.");
         }
         note_value = decodeEnharmonic(note_value);
-        List<String> options = getEnharmonicEquivalents(note_value);
-        List<String> homonymous_options = new ArrayList<String>();
-        for (String option : options) {
-            if (isHomonymous(note_name, note_name)) {
-                homonymous_options.add(option);
+        // The equivalents are sorted shortest first.
+        for (String option : getEnharmonicEquivalents(note_value)) {
+            if (isHomonymous(option, note_name)) {
+                return option;
             }
         }
-        return homonymous_options.stream()
-                .sorted(Comparator.comparingInt(String::length))
-                .collect(Collectors.toList())
-                .get(0);
+        throw new IllegalArgumentException(
+                String.format("Unable to resolve name %s", note_name));
     }
 
     /**
@@ -234,10 +282,16 @@ public class Nomenclature {
      * @param octave           The numeral to append to the note name.
      *                         (Overload default is 0).
      * @return A scientific chromatic scale in the given style.
+     *         The list cannot be modified.
      */
     public static List<String> scientificOctave(List<String> accidental_notes,
             int octave) {
 
+        PitchInterval pitches = ScientificPitch.octave(octave);
+        if (Constants.ACCIDENTAL_TYPES.contains(accidental_notes)
+                && ScientificPitch.RANGE.contains(pitches)) {
+            return ScientificPitch.names(pitches, accidental_notes);
+        }
         return chromatic(accidental_notes)
                 .stream()
                 .map(i -> i + Integer.toString(octave))
@@ -257,9 +311,14 @@ public class Nomenclature {
      * [accidental_notes].
      * 
      * @param accidental_notes Constants.SHARPS, .FLATS, or .BINOMIALS
-     * @return
+     * @return                 The scientific names of every pitch, in
+     *                         order of pitch number (see ScientificPitch).
+     *                         The list is shared and cannot be modified.
      */
     public static List<String> scientificRange(List<String> accidental_notes) {
+        if (Constants.ACCIDENTAL_TYPES.contains(accidental_notes)) {
+            return ScientificPitch.names(accidental_notes);
+        }
         List<String> full_range = new ArrayList<String>();
         for (int octave = 0; octave < Constants.NUMBER_OF_OCTAVES; octave++) {
             List<String> new_octave = scientificOctave(accidental_notes, octave);
@@ -270,14 +329,10 @@ public class Nomenclature {
 
     /**
      * Return a full range of scientific notation with binomial accidentals.
+     * The list is shared and cannot be modified.
      */
     public static List<String> scientificRange() {
-        List<String> full_range = new ArrayList<String>();
-        for (int octave = 0; octave < Constants.NUMBER_OF_OCTAVES; octave++) {
-            List<String> new_octave = scientificOctave(Constants.BINOMIALS, octave);
-            full_range.addAll(new_octave);
-        }
-        return full_range;
+        return ScientificPitch.names(Constants.BINOMIALS);
     }
 
     /**
@@ -285,11 +340,14 @@ public class Nomenclature {
      * type.
      */
     public static List<String> getAccidentals(String note_name) {
-        if (note_name.contains(Constants.BINOMIAL_DIVIDER_SYMBOL)) {
+        int note = NoteName.lex(note_name, 0, note_name.length());
+        if (note == NoteName.INVALID) {
+            throw new IllegalArgumentException("Unknown note name.");
+        } else if (NoteName.isBinomial(note)) {
             return Constants.BINOMIALS;
-        } else if (note_name.contains(Constants.SHARP_SYMBOL)) {
+        } else if (NoteName.accidentals(note) > 0) {
             return Constants.SHARPS;
-        } else if (note_name.contains(Constants.FLAT_SYMBOL)) {
+        } else if (NoteName.accidentals(note) < 0) {
             return Constants.FLATS;
         } else {
             throw new IllegalArgumentException("Unknown note name.");
@@ -315,41 +373,33 @@ public class Nomenclature {
             String note_name,
             String position) {
 
-        int index = scientificRange(getAccidentals(note_value))
-                .indexOf(note_value);
-        List<String> octave = new ArrayList<String>();
-        String symbol = "";
-
+        int pitch = ScientificPitch.pitchOf(note_value);
+        int letter = Constants.NATURALS.indexOf(note_name);
+        if (letter < 0) {
+            throw new IllegalArgumentException(
+                    String.format("Unable to resolve name %s", note_name));
+        }
+        // Semitones from the nearest natural of that name below the value.
+        int distance = Math.floorMod(pitch - Spelling.naturalPitchClass(letter), Constants.TONES);
+        int accidentals;
         switch (position) {
             case Keywords.BELOW -> {
-                index++; // so that last note (i.e. note value) is included
-                octave = scientificRange()
-                        .subList(index - Constants.TONES, index);
-                octave = octave.reversed();
-                symbol = Constants.SHARP_SYMBOL;
+                accidentals = Constants.SHARP_VALUE * distance;
             }
             case Keywords.ABOVE -> {
-                octave = scientificRange()
-                        .subList(index, index + Constants.TONES);
-                symbol = Constants.FLAT_SYMBOL;
+                accidentals = Constants.FLAT_VALUE * Math.floorMod(-distance, Constants.TONES);
             }
             default -> {
                 throw new IllegalArgumentException(
                         String.format("Unknown position argument %s", position));
             }
         }
-
-        for (int i = 0; i < octave.size(); i++) {
-            String note = octave.get(i);
-            if (note.substring(0, note.length() - 1).equals(note_name)) {
-                // "G4" -> "G" + "####" + "4"
-                return note.substring(0, note.length() - 1)
-                        + symbol.repeat(i)
-                        + note.substring(note.length() - 1, note.length());
-            }
+        int natural = pitch - accidentals;
+        if (!ScientificPitch.isInRange(natural)) {
+            throw new IndexOutOfBoundsException(
+                    "Target is out of the legal range.");
         }
-        throw new IllegalArgumentException(
-                String.format("Unable to resolve name %s", note_name));
+        return NoteName.format(NoteName.pack(letter, accidentals, ScientificPitch.octaveOf(natural)));
     }
 
     /**
@@ -362,54 +412,42 @@ public class Nomenclature {
      * @return : An enharmonically-equivalent scientific binomial.
      */
     public static String decodeScientificEnharmonic(String note_name) {
-        List<String> scientific_chromatic_binomials = scientificRange();
-        // A binomial is already the needed note.
-        if (scientific_chromatic_binomials.contains(note_name)) {
-            return note_name;
-        }
-        // Accept only notes with a terminal numeral.
-        if (!note_name.substring(note_name.length() - 1,
-                note_name.length()).matches("\\d")) {
-            throw new IllegalArgumentException(
-                    "Must be a scientific note name in octave 0 to 8");
-        }
-        // Get some information about the note name.
-        String alphabetic_name = note_name.substring(0)
-                + note_name.substring(note_name.length() - 1,
-                        note_name.length());
-        int index = scientific_chromatic_binomials.indexOf(alphabetic_name);
-        int sharps = Functions.countSubstring(note_name,
-                Constants.SHARP_SYMBOL);
-        int flats = Functions.countSubstring(note_name,
-                Constants.FLAT_SYMBOL);
-        if (sharps != 0 & flats != 0) {
-            throw new IllegalArgumentException("Cannot mix flats and sharps");
-        }
-        // Find the new index +/- the number of accidentals.
-        int adjustment = Constants.SHARP_VALUE * sharps;
-        if (sharps == 0) {
-            adjustment = Constants.FLAT_VALUE * flats;
-        }
-        index += adjustment;
-        if (index < 0 | index > scientific_chromatic_binomials.size() - 1) {
-            throw new IndexOutOfBoundsException(
-                    "Target is out of the legal range.");
-        }
-        return scientific_chromatic_binomials.get(index);
+        return ScientificPitch.name(ScientificPitch.pitchOf(note_name));
     }
 
+    /**
+     * Return the scientific note name nearest to the given [frequency] in
+     * 12-tone equal temperament.
+     * 
+     * @param frequency        Any frequency within half a semitone of the
+     *                         scientific range.
+     * @param accidental_notes Constants.SHARPS, .FLATS, or .BINOMIALS
+     * @return A scientific note name in the given style.
+     */
     public static String convertFrequencyToNote(double frequency, List<String> accidental_notes) {
-        List<Double> frequencies = Temperament.equalTemperament();
+        return nearestNote(frequency, accidental_notes).note;
+    }
 
-        if (frequencies.contains(frequency)) {
-            return scientificRange(accidental_notes).get(frequencies.indexOf(frequency));
-        }
-        for (double num : frequencies) {
-            if ((int) num == (int) frequency) {
-                return scientificRange(accidental_notes).get(frequencies.indexOf(num));
-            }
+    /**
+     * Return the scientific note nearest to the given [frequency] in
+     * 12-tone equal temperament, along with the deviation of the frequency
+     * from that note in cents.
+     * 
+     * @param frequency        Any frequency within half a semitone of the
+     *                         scientific range.
+     * @param accidental_notes Constants.SHARPS, .FLATS, or .BINOMIALS
+     * @return The nearest note and its deviation.
+     */
+    public static NoteMatch nearestNote(double frequency, List<String> accidental_notes) {
+        int pitch = Temperament.nearestPitch(frequency);
+        if (pitch < 0) {
+            throw new IllegalArgumentException(
+                    String.format("Frequency %s not recognized.", frequency));
         }
-        throw new IllegalArgumentException(String.format("Frequency %s not recognized."));
+        String note = Constants.ACCIDENTAL_TYPES.contains(accidental_notes)
+                ? ScientificPitch.name(pitch, accidental_notes)
+                : chromatic(accidental_notes).get(pitch % Constants.TONES) + pitch / Constants.TONES;
+        return new NoteMatch(note, pitch, Temperament.centsDeviation(frequency, pitch));
     }
 
     /**
@@ -420,9 +458,7 @@ public class Nomenclature {
      * @return A frequency corresponding to the note name.
      */
     public static double convertNoteToFrequency(String note_name) {
-        note_name = decodeScientificEnharmonic(note_name);
-        int i = scientificRange().indexOf(note_name);
-        return Temperament.equalTemperament().get(i);
+        return Temperament.frequency(ScientificPitch.pitchOf(note_name));
     }
 
     /**
@@ -437,7 +473,8 @@ public class Nomenclature {
      * @param interval_structure A structure of 12 bits, of which exactly
      *                           7 are flipped.
      * @return A list of 7 strings, representing 1 each
-     *         of ABCDEFG, plus accidentals.
+     *         of ABCDEFG, plus accidentals. The list is
+     *         shared and cannot be modified.
      */
     public static List<String> forceHeptatonic(String note_name,
             IntervalBase interval_structure) {
@@ -446,25 +483,9 @@ public class Nomenclature {
             throw new IllegalArgumentException(
                     "Operation cannot be performed on binomial note names");
         }
-        if (interval_structure.bitCount() != Constants.NOTES |
-                interval_structure.bitLength() > Constants.TONES) {
-            throw new IllegalArgumentException(
-                    "Operation can only be performed on heptatonic scales in 12 tone style.");
-        }
-        // Assemble basic alphabetic order to enforce.
-        List<String> plain = Functions.rotateList(new ArrayList<String>(
-                Constants.NATURALS), identity(note_name));
-        // Create binomial version of the requested scale pattern.
-        List<String> binomial = Rendering.renderPlain(
-                interval_structure, Functions.rotateList(
-                        chromatic(), decodeEnharmonic(note_name)));
-        // Force each binomial note value to adopt the next alphabetic note
-        // name.
-        List<String> heptatonic = new ArrayList<String>();
-        for (int i = 0; i < Constants.NOTES; i++) {
-            heptatonic.add(encodeEnharmonic(binomial.get(i), plain.get(i)));
-        }
-        return heptatonic;
+        int letter = Constants.NATURALS.indexOf(identity(note_name));
+        return Spelling.forceHeptatonic(letter, pitchClass(note_name),
+                heptatonicMask(interval_structure)).scale;
     }
 
     /**
@@ -476,59 +497,61 @@ public class Nomenclature {
      * types (fewest total accidentals). 
      * @param note_name             Any natural, sharp, flat, or binomial,
      *                              but not a scientific note name.
-     * @param interval_structure    
-     * @return
+     * @param interval_structure    A structure of 12 bits, of which exactly
+     *                              7 are flipped.
+     * @return                      A list of 7 strings, representing 1 each
+     *                              of ABCDEFG, plus accidentals. The list is
+     *                              shared and cannot be modified.
      */
     public static List<String> bestHeptatonic(String note_name,
             IntervalBase interval_structure) {
 
-        note_name = decodeEnharmonic(note_name);
-        // Naturals' default name is always the best for them.
-        if (Constants.NATURALS.contains(note_name)) {
-            return forceHeptatonic(note_name, interval_structure);
-        }
+        return Spelling.bestHeptatonic(pitchClass(note_name),
+                heptatonicMask(interval_structure)).scale;
+    }
 
-        int note_index = Constants.BINOMIALS.indexOf(note_name);
-        ScaleSynopsis sharp_scale = new ScaleSynopsis(
-                forceHeptatonic(Constants.SHARPS.get(note_index), interval_structure));
-        ScaleSynopsis flat_scale = new ScaleSynopsis(
-                forceHeptatonic(Constants.FLATS.get(note_index), interval_structure));
-        List<ScaleSynopsis> synopseis = new ArrayList<ScaleSynopsis>();
-        synopseis.add(sharp_scale);
-        synopseis.add(flat_scale);
-
-        // Count the accidentals in each version
-        for (ScaleSynopsis synopsis : synopseis) {
-            for (String note : synopsis.scale) {
-                synopsis.sharps = Functions.countSubstring(note, Constants.SHARP_SYMBOL);
-                synopsis.flats = Functions.countSubstring(note, Constants.FLAT_SYMBOL);
-                if (synopsis.sharps > 0 & synopsis.flats > 0) {
-                    synopsis.mixed = true;
-                }
-            }
-        }
-        // Return the version with fewest accidentals.
-        int s_total = sharp_scale.sharps + sharp_scale.flats;
-        int f_total = flat_scale.sharps + flat_scale.flats;
-        if (s_total > f_total) {
-            return flat_scale.scale;
-        }
-        if (f_total > s_total) {
-            return sharp_scale.scale;
-        }
+    /**
+     * Choose the best set of alphabetic note names for a structure of any
+     * size: pentatonics, octatonics, chord tones, and so on.
+     * 
+     * Letters are chosen to avoid giving two notes the same letter, then
+     * to use the fewest accidentals, then to avoid mixing sharps and flats
+     * (see Spelling.bestSpelling). Heptatonic scales come out as in
+     * bestHeptatonic.
+     * 
+     * @param note_name             Any natural, sharp, flat, or binomial,
+     *                              but not a scientific note name.
+     * @param interval_structure    Any structure of up to 128 bits.
+     * @return                      One note name per flipped bit, lowest
+     *                              first.
+     */
+    public static List<String> bestSpelling(String note_name,
+            IntervalBase interval_structure) {
 
-        // Both scales have the same number of accidentals. Return the
-        // pure scale.
-        if (sharp_scale.mixed & !flat_scale.mixed) {
-            return flat_scale.scale;
-        }
-        if (!sharp_scale.mixed & flat_scale.mixed) {
-            return sharp_scale.scale;
-        }
+        return Spelling.bestSpelling(pitchClass(note_name),
+                interval_structure.toWidePitchSet());
+    }
+
+    /**
+     * Return the pitch class (0 = C) of any [note_name] that
+     * decodeEnharmonic accepts.
+     */
+    private static int pitchClass(String note_name) {
+        return EnharmonicIndex.CHROMATIC_INDEX.get(decodeEnharmonic(note_name));
+    }
 
-        // Scales are both pure with the same number of accidentals.
-        // Arbitrarily default to sharps.
-        return sharp_scale.scale;
+    /**
+     * Return the mask of an [interval_structure] that must be a heptatonic
+     * scale in 12 tone style.
+     */
+    private static int heptatonicMask(IntervalBase interval_structure) {
+        if (!interval_structure.isNarrow() |
+                interval_structure.bitCount() != Constants.NOTES |
+                interval_structure.bitLength() > Constants.TONES) {
+            throw new IllegalArgumentException(
+                    "Operation can only be performed on heptatonic scales in 12 tone style.");
+        }
+        return (int) interval_structure.toPitchSet().longValue();
     }
 
     /**
@@ -0,0 +1,238 @@
+package src.aristoxenus;
+
+/**
+ * Note names packed into a single int.
+ *
+ * A note name is read in one pass over its characters, without regular
+ * expressions or substrings, and stored as its letter (an index into
+ * Constants.NATURALS, 0 = C), its signed number of accidentals (positive
+ * = sharps) and its octave, if it has one:
+ *
+ *     note     = letter { "#" } [ octave ]
+ *              | letter { "b" } [ octave ]
+ *              | letter "#" "|" letter "b" [ octave ]
+ *
+ * E.g. "C", "Bbb", "F#4", "A######7", "C#|Db4". A binomial is stored as
+ * its sharp name, with a flag so that it is formatted as a binomial.
+ *
+ * Packed notes are never negative; lex() returns INVALID instead of
+ * throwing, for callers that read many names.
+ */
+public final class NoteName {
+    /** Returned by lex() for anything that is not a note name. */
+    public static final int INVALID = -1;
+
+    /** The octave of a note name without one. */
+    public static final int NO_OCTAVE = -1;
+
+    /** Most accidentals a packed note can hold, in either direction. */
+    public static final int MAX_ACCIDENTALS = Byte.MAX_VALUE;
+
+    /** Highest octave a packed note can hold. */
+    public static final int MAX_OCTAVE = 0xFE;
+
+    private static final int LETTER_MASK = 0x7;
+    private static final int BINOMIAL_FLAG = 0x8;
+    private static final int ACCIDENTAL_SHIFT = 8;
+    private static final int OCTAVE_SHIFT = 16;
+    private static final int BYTE_MASK = 0xFF;
+
+    private static final char SHARP = Constants.SHARP_SYMBOL.charAt(0);
+    private static final char FLAT = Constants.FLAT_SYMBOL.charAt(0);
+    private static final char DIVIDER = Constants.BINOMIAL_DIVIDER_SYMBOL.charAt(0);
+
+    /** Letter of each capital, indexed by character - 'A'. */
+    private static final int[] LETTERS = new int[Constants.NOTES];
+
+    /** Capital of each letter. */
+    private static final char[] CAPITALS = new char[Constants.NOTES];
+
+    static {
+        for (int letter = 0; letter < Constants.NOTES; letter++) {
+            char capital = Constants.NATURALS.get(letter).charAt(0);
+            CAPITALS[letter] = capital;
+            LETTERS[capital - 'A'] = letter;
+        }
+    }
+
+    /**
+     * Pack a note from its [letter] (0 = C), signed number of
+     * [accidentals] and [octave] (NO_OCTAVE for none).
+     */
+    public static int pack(int letter, int accidentals, int octave) {
+        if (letter < 0 | letter >= Constants.NOTES
+                | Math.abs(accidentals) > MAX_ACCIDENTALS
+                | octave < NO_OCTAVE | octave > MAX_OCTAVE) {
+            throw new IllegalArgumentException(String.format(
+                    "Cannot pack letter %s, %s accidentals, octave %s.",
+                    letter, accidentals, octave));
+        }
+        return letter
+                | (accidentals & BYTE_MASK) << ACCIDENTAL_SHIFT
+                | (octave + 1) << OCTAVE_SHIFT;
+    }
+
+    /** Return the letter of a packed [note], 0 = C. */
+    public static int letter(int note) {
+        return note & LETTER_MASK;
+    }
+
+    /** Return the signed number of accidentals of a packed [note]. */
+    public static int accidentals(int note) {
+        return (byte) (note >>> ACCIDENTAL_SHIFT);
+    }
+
+    /** Return the octave of a packed [note], or NO_OCTAVE. */
+    public static int octave(int note) {
+        return (note >>> OCTAVE_SHIFT) - 1;
+    }
+
+    /** Check whether a packed [note] has an octave. */
+    public static boolean hasOctave(int note) {
+        return octave(note) != NO_OCTAVE;
+    }
+
+    /** Check whether a packed [note] was read from a binomial. */
+    public static boolean isBinomial(int note) {
+        return (note & BINOMIAL_FLAG) != 0;
+    }
+
+    /** Return the pitch class of a packed [note], 0 = C. */
+    public static int pitchClass(int note) {
+        return Math.floorMod(Spelling.naturalPitchClass(letter(note)) + accidentals(note),
+                Constants.TONES);
+    }
+
+    /**
+     * Return the absolute pitch (0 = C0) of a packed [note] with an
+     * octave. Accidentals may carry it into the next or previous octave:
+     * "B#4" is C5 and "Cb4" is B3.
+     */
+    public static int pitch(int note) {
+        if (!hasOctave(note)) {
+            throw new IllegalArgumentException("Note has no octave.");
+        }
+        return octave(note) * Constants.TONES
+                + Spelling.naturalPitchClass(letter(note)) + accidentals(note);
+    }
+
+    /**
+     * Read a whole [note_name].
+     *
+     * @return  The packed note.
+     * @throws IllegalArgumentException If the name is not a note name.
+     */
+    public static int parse(CharSequence note_name) {
+        int note = lex(note_name, 0, note_name.length());
+        if (note == INVALID) {
+            throw new IllegalArgumentException(
+                    String.format("Note name %s not recognized.", note_name));
+        }
+        return note;
+    }
+
+    /**
+     * Read the note name between [start] and [end] of [text].
+     *
+     * @return  The packed note, or INVALID.
+     */
+    public static int lex(CharSequence text, int start, int end) {
+        int position = start;
+        if (position >= end) {
+            return INVALID;
+        }
+        int letter = letterOf(text.charAt(position++));
+        if (letter < 0) {
+            return INVALID;
+        }
+        int accidentals = 0;
+        char symbol = 0;
+        while (position < end) {
+            char c = text.charAt(position);
+            if (c != SHARP & c != FLAT) {
+                break;
+            }
+            if (symbol != 0 & c != symbol) {
+                return INVALID;
+            }
+            symbol = c;
+            accidentals += c == SHARP ? Constants.SHARP_VALUE : Constants.FLAT_VALUE;
+            if (Math.abs(accidentals) > MAX_ACCIDENTALS) {
+                return INVALID;
+            }
+            position++;
+        }
+
+        int flags = 0;
+        if (position < end && text.charAt(position) == DIVIDER) {
+            // Only a sharp and the flat of the next letter, a tone up, make
+            // a binomial.
+            if (accidentals != Constants.SHARP_VALUE | position + 2 >= end) {
+                return INVALID;
+            }
+            int other = letterOf(text.charAt(position + 1));
+            if (other != (letter + 1) % Constants.NOTES
+                    | text.charAt(position + 2) != FLAT
+                    | Math.floorMod(Spelling.naturalPitchClass(other)
+                            - Spelling.naturalPitchClass(letter), Constants.TONES) != 2) {
+                return INVALID;
+            }
+            position += 3;
+            flags = BINOMIAL_FLAG;
+        }
+
+        int octave = NO_OCTAVE;
+        if (position < end) {
+            octave = 0;
+            while (position < end) {
+                int digit = text.charAt(position++) - '0';
+                if (digit < 0 | digit > 9) {
+                    return INVALID;
+                }
+                octave = octave * 10 + digit;
+                if (octave > MAX_OCTAVE) {
+                    return INVALID;
+                }
+            }
+        }
+        return pack(letter, accidentals, octave) | flags;
+    }
+
+    /** Return a packed [note] as a name, e.g. "F#4". */
+    public static String format(int note) {
+        return format(note, new StringBuilder()).toString();
+    }
+
+    /**
+     * Append the name of a packed [note] to [out].
+     *
+     * @return [out]
+     */
+    public static StringBuilder format(int note, StringBuilder out) {
+        int letter = letter(note);
+        int accidentals = accidentals(note);
+        out.append(CAPITALS[letter]);
+        char symbol = accidentals < 0 ? FLAT : SHARP;
+        for (int i = Math.abs(accidentals); i > 0; i--) {
+            out.append(symbol);
+        }
+        if (isBinomial(note)) {
+            out.append(DIVIDER)
+                    .append(CAPITALS[(letter + 1) % Constants.NOTES])
+                    .append(FLAT);
+        }
+        if (hasOctave(note)) {
+            out.append(octave(note));
+        }
+        return out;
+    }
+
+    /** Return the letter (0 = C) of a capital [c], or -1 if it is not one. */
+    static int letterOf(char c) {
+        int index = c - 'A';
+        if (index < 0 | index >= Constants.NOTES) {
+            return -1;
+        }
+        return LETTERS[index];
+    }
+}
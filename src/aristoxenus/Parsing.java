@@ -1,10 +1,249 @@
 package src.aristoxenus;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import src.aristoxenus.Classes.ChordSymbol;
+
+/**
+ * Parse chord symbols into roots and interval structures.
+ *
+ * A chord symbol is read in a single pass over its characters, without
+ * regular expressions or intermediate substrings:
+ *
+ *     symbol    = component { "@" component }
+ *     component = root suffix [ "/" note ] [ "^" octaves ]
+ *     root      = letter { "#" } | letter { "b" }
+ *
+ * E.g. "Cmaj7", "F#m7b5", "C/E", "D@C", "G7^2@C".
+ *
+ * The suffix is one of Constants.CHORD_SUFFIXES. A slash puts the given
+ * note below the chord. In a polychord, each component stands above the
+ * component to its right; "^" gives the number of octaves between the
+ * lowest note of a component and the one below it (default 1).
+ */
 public class Parsing {
 
-    private static String[] removeChordPrefix(String chord_symbol){
-        String root;
-        
+    /**
+     * Maximum number of distinct symbols remembered by parseChord; the
+     * cache is emptied when it is reached.
+     */
+    public static final int CACHE_LIMIT = 4096;
+
+    private static final Map<String, ChordSymbol> CACHE = new ConcurrentHashMap<>();
+
+    private static final char SLASH = Constants.SLASH_CHORD_DIVIDER_SYMBOL.charAt(0);
+    private static final char POLYCHORD = Constants.POLYCHORD_DIVIDER_SYMBOL.charAt(0);
+    private static final char OCTAVE = Constants.POLYCHORD_OCTAVE_SYMBOL.charAt(0);
+    private static final char SHARP = Constants.SHARP_SYMBOL.charAt(0);
+    private static final char FLAT = Constants.FLAT_SYMBOL.charAt(0);
+
+    /** Chord suffixes and their structures, grouped by suffix length. */
+    private static final String[][] SUFFIXES;
+    private static final int[][] SUFFIX_STRUCTURES;
+
+    static {
+        int longest = 0;
+        for (String suffix : Constants.CHORD_SUFFIXES.keySet()) {
+            longest = Math.max(longest, suffix.length());
+        }
+        List<List<String>> by_length = new ArrayList<List<String>>();
+        for (int i = 0; i <= longest; i++) {
+            by_length.add(new ArrayList<String>());
+        }
+        for (String suffix : Constants.CHORD_SUFFIXES.keySet()) {
+            by_length.get(suffix.length()).add(suffix);
+        }
+        SUFFIXES = new String[longest + 1][];
+        SUFFIX_STRUCTURES = new int[longest + 1][];
+        for (int i = 0; i <= longest; i++) {
+            SUFFIXES[i] = by_length.get(i).toArray(new String[0]);
+            SUFFIX_STRUCTURES[i] = new int[SUFFIXES[i].length];
+            for (int j = 0; j < SUFFIXES[i].length; j++) {
+                SUFFIX_STRUCTURES[i][j] = Constants.CHORD_SUFFIXES.get(SUFFIXES[i][j]);
+            }
+        }
+    }
+
+    /**
+     * Parse a [chord_symbol], remembering the result so that repeated
+     * symbols are only parsed once.
+     *
+     * @param chord_symbol  A chord symbol, e.g. "Bbm7/Ab".
+     * @return              The parsed symbol.
+     * @throws IllegalArgumentException If the symbol cannot be parsed.
+     */
+    public static ChordSymbol parseChord(String chord_symbol) {
+        ChordSymbol parsed = CACHE.get(chord_symbol);
+        if (parsed == null) {
+            parsed = parseChordUncached(chord_symbol);
+            // Start over when full, so a long-running process keeps
+            // the symbols it has seen lately rather than the first ones.
+            if (CACHE.size() >= CACHE_LIMIT) {
+                CACHE.clear();
+            }
+            CACHE.putIfAbsent(chord_symbol, parsed);
+        }
+        return parsed;
+    }
+
+    /**
+     * Parse a [chord_symbol] without consulting or filling the cache.
+     *
+     * @param chord_symbol  A chord symbol, e.g. "Bbm7/Ab".
+     * @return              The parsed symbol.
+     * @throws IllegalArgumentException If the symbol cannot be parsed.
+     */
+    public static ChordSymbol parseChordUncached(String chord_symbol) {
+        Scanner scanner = new Scanner(chord_symbol);
+        scanner.component();
+        WidePitchSet stack = scanner.structure;
+        int stack_bass = scanner.bass;
+        int octaves = scanner.octaves;
+
+        // Each further component goes underneath everything read so far.
+        while (scanner.position < chord_symbol.length()) {
+            scanner.expect(POLYCHORD);
+            scanner.component();
+            int offset = octaves * Constants.TONES
+                    + Math.floorMod(stack_bass - scanner.bass, Constants.TONES);
+            if (stack.bitLength() + offset > WidePitchSet.RANGE) {
+                throw new IllegalArgumentException(String.format(
+                        "Chord symbol %s exceeds the range of %s notes.",
+                        chord_symbol, WidePitchSet.RANGE));
+            }
+            stack = scanner.structure.stack(stack, offset);
+            stack_bass = scanner.bass;
+            octaves = scanner.octaves;
+        }
+        return new ChordSymbol(chord_symbol, scanner.root, stack_bass, stack);
     }
-    
+
+    /** Forget every remembered chord symbol. */
+    public static void clearCache() {
+        CACHE.clear();
+    }
+
+    /**
+     * Cursor over a chord symbol. Each call to component() reads one
+     * component and leaves its root, lowest note, structure and octave
+     * offset in the fields.
+     */
+    private static final class Scanner {
+        private final String symbol;
+        private int position = 0;
+        private int root;
+        private int bass;
+        private int octaves;
+        private WidePitchSet structure;
+
+        private Scanner(String symbol) {
+            this.symbol = symbol;
+        }
+
+        private void component() {
+            root = note();
+            bass = root;
+
+            int start = position;
+            while (position < symbol.length() && !isDivider(symbol.charAt(position))) {
+                position++;
+            }
+            structure = WidePitchSet.valueOf(suffix(start, position));
+
+            if (position < symbol.length() && symbol.charAt(position) == SLASH) {
+                position++;
+                bass = note();
+                int shift = Math.floorMod(root - bass, Constants.TONES);
+                if (shift != 0) {
+                    structure = structure.withBass(shift);
+                }
+            }
+
+            octaves = 1;
+            if (position < symbol.length() && symbol.charAt(position) == OCTAVE) {
+                position++;
+                octaves = number();
+            }
+        }
+
+        /** Read a letter and its accidentals; return its pitch class. */
+        private int note() {
+            if (position >= symbol.length()) {
+                throw error();
+            }
+            int letter = NoteName.letterOf(symbol.charAt(position));
+            if (letter < 0) {
+                throw error();
+            }
+            position++;
+            // Sharps or flats, but not both, as in NoteName.
+            int pitch_class = Spelling.naturalPitchClass(letter);
+            char accidental = 0;
+            while (position < symbol.length()) {
+                char c = symbol.charAt(position);
+                if (c != SHARP & c != FLAT) {
+                    break;
+                }
+                if (accidental != 0 & c != accidental) {
+                    throw error();
+                }
+                accidental = c;
+                pitch_class += (c == SHARP) ? Constants.SHARP_VALUE : Constants.FLAT_VALUE;
+                position++;
+            }
+            return Math.floorMod(pitch_class, Constants.TONES);
+        }
+
+        /** Read an unsigned decimal number. */
+        private int number() {
+            int start = position;
+            int value = 0;
+            while (position < symbol.length() && Character.isDigit(symbol.charAt(position))) {
+                value = value * 10 + (symbol.charAt(position) - '0');
+                position++;
+                if (value > Constants.NUMBER_OF_OCTAVES) {
+                    throw error();
+                }
+            }
+            if (position == start) {
+                throw error();
+            }
+            return value;
+        }
+
+        /** Return the structure of the suffix between [start] and [end]. */
+        private int suffix(int start, int end) {
+            int length = end - start;
+            if (length < SUFFIXES.length) {
+                String[] candidates = SUFFIXES[length];
+                for (int i = 0; i < candidates.length; i++) {
+                    if (symbol.regionMatches(start, candidates[i], 0, length)) {
+                        return SUFFIX_STRUCTURES[length][i];
+                    }
+                }
+            }
+            position = start;
+            throw error();
+        }
+
+        private void expect(char c) {
+            if (symbol.charAt(position) != c) {
+                throw error();
+            }
+            position++;
+        }
+
+        private boolean isDivider(char c) {
+            return c == SLASH | c == POLYCHORD | c == OCTAVE;
+        }
+
+        private IllegalArgumentException error() {
+            return new IllegalArgumentException(String.format(
+                    "Unable to parse chord symbol %s at position %s.", symbol, position));
+        }
+    }
+
 }
@@ -1,5 +1,582 @@
 package src.aristoxenus;
 
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazy enumeration of interval structures and of orderings of their notes.
+ *
+ * Subsets of k notes out of n are walked in colexicographic order (i.e.
+ * in ascending numerical order of their masks) with Gosper's bit trick,
+ * so nothing is materialized. Structures of up to 63 bits are plain longs;
+ * wider ones, up to the full scientific range, are WidePitchSets.
+ *
+ * The spliterators split by jumping straight to the subset (or ordering)
+ * halfway through their range, so the streams parallelize evenly.
+ */
 public class Permutation {
-    
+
+    /** Widest structure that can be enumerated as a long. */
+    public static final int MAX_NARROW_BITS = Long.SIZE - 1;
+
+    /** Most notes whose orderings can be counted in a long (20! < 2^63). */
+    public static final int MAX_ORDERED_NOTES = 20;
+
+    /** Binomial coefficients up to WidePitchSet.CAPACITY, saturated at Long.MAX_VALUE. */
+    private static final long[][] BINOMIALS = new long[WidePitchSet.CAPACITY + 1][];
+    static {
+        for (int n = 0; n < BINOMIALS.length; n++) {
+            BINOMIALS[n] = new long[n + 1];
+            BINOMIALS[n][0] = 1;
+            BINOMIALS[n][n] = 1;
+            for (int k = 1; k < n; k++) {
+                long sum = BINOMIALS[n - 1][k - 1] + BINOMIALS[n - 1][k];
+                BINOMIALS[n][k] = (sum < 0) ? Long.MAX_VALUE : sum;
+            }
+        }
+    }
+
+    /**
+     * Return the number of ways to choose [k] of [n] notes, or
+     * Long.MAX_VALUE if that number does not fit in a long.
+     */
+    public static long binomial(int n, int k) {
+        if (k < 0 | k > n) {
+            return 0;
+        }
+        return BINOMIALS[n][k];
+    }
+
+    /** Return [n] factorial, for n up to MAX_ORDERED_NOTES. */
+    public static long factorial(int n) {
+        long result = 1;
+        for (int i = 2; i <= n; i++) {
+            result *= i;
+        }
+        return result;
+    }
+
+    /*
+     * Subsets of up to 63 bits.
+     */
+
+    /**
+     * Return the subset that follows [mask] in colexicographic order among
+     * subsets with the same number of flipped bits. The result may have
+     * bits above the width being enumerated, which marks the end.
+     */
+    public static long nextSubset(long mask) {
+        long lowest = mask & -mask;
+        long ripple = mask + lowest;
+        return (((ripple ^ mask) >>> 2) >>> Long.numberOfTrailingZeros(mask)) | ripple;
+    }
+
+    /**
+     * Return an iterator over all masks of [n] bits with [k] flipped, in
+     * ascending order.
+     */
+    public static PrimitiveIterator.OfLong subsets(int n, int k) {
+        return Spliterators.iterator(subsetSpliterator(n, k));
+    }
+
+    /**
+     * Return a spliterator over all masks of [n] bits with [k] flipped, in
+     * ascending order.
+     */
+    public static Spliterator.OfLong subsetSpliterator(int n, int k) {
+        checkNarrow(n, k);
+        return new SubsetSpliterator(n, k, 0, binomial(n, k), PitchSet.mask(k));
+    }
+
+    /**
+     * Return a stream of all masks of [n] bits with [k] flipped, in
+     * ascending order.
+     */
+    public static LongStream subsetStream(int n, int k, boolean parallel) {
+        return StreamSupport.longStream(subsetSpliterator(n, k), parallel);
+    }
+
+    /**
+     * Return the colexicographic rank of a [mask] among the masks with the
+     * same number of flipped bits: the number of such masks smaller than
+     * it.
+     */
+    public static long rank(long mask) {
+        long rank = 0;
+        int i = 1;
+        for (long remaining = mask; remaining != 0; remaining &= remaining - 1) {
+            rank += binomial(Long.numberOfTrailingZeros(remaining), i++);
+        }
+        return rank;
+    }
+
+    /**
+     * Return the mask with [k] flipped bits whose colexicographic rank is
+     * [rank]; the inverse of rank(long).
+     */
+    public static long unrank(long rank, int k) {
+        return unrankFrom(rank, k, MAX_NARROW_BITS);
+    }
+
+    /**
+     * Return the mask of at most [width] bits with [k] flipped whose
+     * colexicographic rank is [rank].
+     *
+     * @throws IllegalArgumentException If there is no such mask.
+     */
+    public static long unrank(long rank, int width, int k) {
+        checkNarrow(width, k);
+        if (rank < 0 | rank >= binomial(width, k)) {
+            throw new IllegalArgumentException(String.format(
+                    "Rank %s is out of range for %s of %s bits.", rank, k, width));
+        }
+        return unrankFrom(rank, k, width - 1);
+    }
+
+    /**
+     * Return the colexicographic rank of an [interval_structure] among
+     * structures with the same number of flipped bits.
+     */
+    public static long rank(IntervalBase interval_structure) {
+        return rank(interval_structure.toWidePitchSet());
+    }
+
+    /**
+     * Return the rank of a [mask] that has its root (bit 0) flipped among
+     * the masks with the same number of flipped bits that also have it.
+     * Rooted structures are the valid scales and chords: of [width] bits
+     * with [k] flipped there are binomial(width - 1, k - 1) of them.
+     */
+    public static long rankRooted(long mask) {
+        if ((mask & 1) == 0) {
+            throw new IllegalArgumentException("Structure must include the root.");
+        }
+        return rank(mask >>> 1);
+    }
+
+    /**
+     * Return the rooted mask of at most [width] bits with [k] flipped whose
+     * rank (see rankRooted) is [rank].
+     */
+    public static long unrankRooted(long rank, int width, int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("Structure must include the root.");
+        }
+        return (unrank(rank, width - 1, k - 1) << 1) | 1;
+    }
+
+    private static long unrankFrom(long rank, int k, int position) {
+        long mask = 0;
+        for (int i = k; i > 0; i--) {
+            position = largestBelow(rank, i, position);
+            mask |= 1L << position;
+            rank -= binomial(position, i);
+        }
+        return mask;
+    }
+
+    /*
+     * Subsets of up to WidePitchSet.CAPACITY bits.
+     */
+
+    /**
+     * Return the subset that follows [set] in colexicographic order among
+     * subsets with the same number of flipped bits; see nextSubset(long).
+     */
+    public static WidePitchSet nextSubset(WidePitchSet set) {
+        long low = set.low();
+        long high = set.high();
+        int shift = set.lowestSetBit();
+        long lowest_low = (shift < Long.SIZE) ? 1L << shift : 0;
+        long lowest_high = (shift < Long.SIZE) ? 0 : 1L << (shift - Long.SIZE);
+        long ripple_low = low + lowest_low;
+        long carry = (Long.compareUnsigned(ripple_low, low) < 0) ? 1 : 0;
+        long ripple_high = high + lowest_high + carry;
+        WidePitchSet ripple = WidePitchSet.valueOf(ripple_low, ripple_high);
+        return WidePitchSet.valueOf(ripple_low ^ low, ripple_high ^ high)
+                .shiftRight(2 + shift)
+                .or(ripple);
+    }
+
+    /**
+     * Return an iterator over all sets of [n] bits with [k] flipped, in
+     * ascending order.
+     */
+    public static Iterator<WidePitchSet> wideSubsets(int n, int k) {
+        return Spliterators.iterator(wideSubsetSpliterator(n, k));
+    }
+
+    /**
+     * Return a spliterator over all sets of [n] bits with [k] flipped, in
+     * ascending order. It only splits if the number of sets fits in a long.
+     */
+    public static Spliterator<WidePitchSet> wideSubsetSpliterator(int n, int k) {
+        if (n < 0 | n > WidePitchSet.CAPACITY | k < 0) {
+            throw new IllegalArgumentException(
+                    String.format("Cannot choose %s of %s bits.", k, n));
+        }
+        return new WideSubsetSpliterator(n, k, 0, binomial(n, k), WidePitchSet.mask(k));
+    }
+
+    /**
+     * Return a stream of all sets of [n] bits with [k] flipped, in
+     * ascending order.
+     */
+    public static Stream<WidePitchSet> wideSubsetStream(int n, int k, boolean parallel) {
+        return StreamSupport.stream(wideSubsetSpliterator(n, k), parallel);
+    }
+
+    /** Wide version of rank(long). */
+    public static long rank(WidePitchSet set) {
+        long rank = 0;
+        int i = 1;
+        for (int p = set.nextSetBit(0); p >= 0; p = set.nextSetBit(p + 1)) {
+            rank += binomial(p, i++);
+        }
+        return rank;
+    }
+
+    /** Wide version of unrank(long, int). */
+    public static WidePitchSet unrankWide(long rank, int k) {
+        long low = 0;
+        long high = 0;
+        int position = WidePitchSet.CAPACITY - 1;
+        for (int i = k; i > 0; i--) {
+            position = largestBelow(rank, i, position);
+            if (position < Long.SIZE) {
+                low |= 1L << position;
+            } else {
+                high |= 1L << (position - Long.SIZE);
+            }
+            rank -= binomial(position, i);
+        }
+        return WidePitchSet.valueOf(low, high);
+    }
+
+    /*
+     * Orderings of the notes of a structure.
+     */
+
+    /**
+     * Return the positions of the flipped bits of [interval_structure] in
+     * ascending order, which is the first ordering of its notes.
+     */
+    public static int[] positions(IntervalBase interval_structure) {
+        WidePitchSet set = interval_structure.toWidePitchSet();
+        int[] positions = new int[set.bitCount()];
+        int i = 0;
+        for (int p = set.nextSetBit(0); p >= 0; p = set.nextSetBit(p + 1)) {
+            positions[i++] = p;
+        }
+        return positions;
+    }
+
+    /**
+     * Rearrange [ordering] into the next ordering in lexicographic order.
+     *
+     * @return false if [ordering] was already the last one, in which case
+     *         it is left unchanged.
+     */
+    public static boolean nextOrdering(int[] ordering) {
+        int i = ordering.length - 2;
+        while (i >= 0 && ordering[i] >= ordering[i + 1]) {
+            i--;
+        }
+        if (i < 0) {
+            return false;
+        }
+        int j = ordering.length - 1;
+        while (ordering[j] <= ordering[i]) {
+            j--;
+        }
+        swap(ordering, i, j);
+        for (int a = i + 1, b = ordering.length - 1; a < b; a++, b--) {
+            swap(ordering, a, b);
+        }
+        return true;
+    }
+
+    /**
+     * Pass every ordering of the notes of [interval_structure] to the
+     * [consumer] as bit positions, reusing a single array. The consumer
+     * must copy the array if it keeps it.
+     */
+    public static void forEachOrdering(IntervalBase interval_structure, Consumer<int[]> consumer) {
+        int[] ordering = positions(interval_structure);
+        do {
+            consumer.accept(ordering);
+        } while (nextOrdering(ordering));
+    }
+
+    /**
+     * Return an iterator over every ordering of the notes of
+     * [interval_structure], as arrays of bit positions.
+     */
+    public static Iterator<int[]> orderings(IntervalBase interval_structure) {
+        return Spliterators.iterator(orderingSpliterator(interval_structure));
+    }
+
+    /**
+     * Return a spliterator over every ordering of the notes of
+     * [interval_structure], as arrays of bit positions in lexicographic
+     * order.
+     */
+    public static Spliterator<int[]> orderingSpliterator(IntervalBase interval_structure) {
+        int[] positions = positions(interval_structure);
+        if (positions.length > MAX_ORDERED_NOTES) {
+            throw new IllegalArgumentException(String.format(
+                    "Cannot order more than %s notes.", MAX_ORDERED_NOTES));
+        }
+        return new OrderingSpliterator(positions, 0, factorial(positions.length), positions.clone());
+    }
+
+    /**
+     * Return a stream of every ordering of the notes of
+     * [interval_structure], as arrays of bit positions.
+     */
+    public static Stream<int[]> orderingStream(IntervalBase interval_structure, boolean parallel) {
+        return StreamSupport.stream(orderingSpliterator(interval_structure), parallel);
+    }
+
+    /**
+     * Return the ordering of the (ascending) [positions] with the given
+     * lexicographic [rank].
+     */
+    public static int[] unrankOrdering(int[] positions, long rank) {
+        int[] remaining = positions.clone();
+        int[] ordering = new int[positions.length];
+        int size = positions.length;
+        for (int i = 0; i < ordering.length; i++) {
+            long block = factorial(size - 1);
+            int choice = (int) (rank / block);
+            rank %= block;
+            ordering[i] = remaining[choice];
+            System.arraycopy(remaining, choice + 1, remaining, choice, size - choice - 1);
+            size--;
+        }
+        return ordering;
+    }
+
+    /*
+     * Helpers.
+     */
+
+    private static void checkNarrow(int n, int k) {
+        if (n < 0 | n > MAX_NARROW_BITS | k < 0) {
+            throw new IllegalArgumentException(
+                    String.format("Cannot choose %s of %s bits.", k, n));
+        }
+    }
+
+    /**
+     * Return the largest position below [limit] (inclusive) with
+     * binomial(position, i) <= rank.
+     */
+    private static int largestBelow(long rank, int i, int limit) {
+        int position = limit;
+        while (binomial(position, i) > rank) {
+            position--;
+        }
+        return position;
+    }
+
+    private static void swap(int[] array, int i, int j) {
+        int temporary = array[i];
+        array[i] = array[j];
+        array[j] = temporary;
+    }
+
+    /**
+     * Walks the ranks [index, end) of the k-subsets of n bits; [mask] is
+     * the subset at [index].
+     */
+    private static final class SubsetSpliterator implements Spliterator.OfLong {
+        private final int n;
+        private final int k;
+        private long index;
+        private final long end;
+        private long mask;
+
+        private SubsetSpliterator(int n, int k, long index, long end, long mask) {
+            this.n = n;
+            this.k = k;
+            this.index = index;
+            this.end = end;
+            this.mask = mask;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            if (index >= end) {
+                return false;
+            }
+            action.accept(mask);
+            index++;
+            if (index < end) {
+                mask = nextSubset(mask);
+            }
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(LongConsumer action) {
+            long current = mask;
+            for (long i = index; i < end; i++) {
+                action.accept(current);
+                current = nextSubset(current);
+            }
+            index = end;
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            long middle = (index + end) >>> 1;
+            if (middle <= index) {
+                return null;
+            }
+            SubsetSpliterator prefix = new SubsetSpliterator(n, k, index, middle, mask);
+            index = middle;
+            mask = unrank(middle, k);
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | SORTED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+
+        @Override
+        public Comparator<? super Long> getComparator() {
+            return null;
+        }
+    }
+
+    /**
+     * Wide version of SubsetSpliterator. If the number of subsets does not
+     * fit in a long, [end] is Long.MAX_VALUE, the spliterator is not
+     * split, and it stops when the subsets outgrow n bits.
+     */
+    private static final class WideSubsetSpliterator implements Spliterator<WidePitchSet> {
+        private final int n;
+        private final int k;
+        private long index;
+        private final long end;
+        private WidePitchSet set;
+
+        private WideSubsetSpliterator(int n, int k, long index, long end, WidePitchSet set) {
+            this.n = n;
+            this.k = k;
+            this.index = index;
+            this.end = end;
+            this.set = set;
+        }
+
+        private boolean isExact() {
+            return binomial(n, k) < Long.MAX_VALUE;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super WidePitchSet> action) {
+            if (index >= end || set.bitLength() > n) {
+                return false;
+            }
+            action.accept(set);
+            index++;
+            if (index < end) {
+                set = nextSubset(set);
+            }
+            return true;
+        }
+
+        @Override
+        public Spliterator<WidePitchSet> trySplit() {
+            long middle = (index + end) >>> 1;
+            if (!isExact() || middle <= index) {
+                return null;
+            }
+            WideSubsetSpliterator prefix = new WideSubsetSpliterator(n, k, index, middle, set);
+            index = middle;
+            set = unrankWide(middle, k);
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - index;
+        }
+
+        @Override
+        public int characteristics() {
+            int characteristics = ORDERED | DISTINCT | NONNULL | IMMUTABLE;
+            return isExact() ? characteristics | SIZED | SUBSIZED : characteristics;
+        }
+    }
+
+    /**
+     * Walks the lexicographic ranks [index, end) of the orderings of
+     * [positions]; [ordering] is the ordering at [index].
+     */
+    private static final class OrderingSpliterator implements Spliterator<int[]> {
+        private final int[] positions;
+        private long index;
+        private final long end;
+        private final int[] ordering;
+
+        private OrderingSpliterator(int[] positions, long index, long end, int[] ordering) {
+            this.positions = positions;
+            this.index = index;
+            this.end = end;
+            this.ordering = ordering;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super int[]> action) {
+            if (index >= end) {
+                return false;
+            }
+            action.accept(ordering.clone());
+            index++;
+            if (index < end) {
+                nextOrdering(ordering);
+            }
+            return true;
+        }
+
+        @Override
+        public Spliterator<int[]> trySplit() {
+            long middle = (index + end) >>> 1;
+            if (middle <= index) {
+                return null;
+            }
+            OrderingSpliterator prefix = new OrderingSpliterator(
+                    positions, index, middle, ordering.clone());
+            index = middle;
+            int[] jump = unrankOrdering(positions, middle);
+            System.arraycopy(jump, 0, ordering, 0, jump.length);
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+    }
 }
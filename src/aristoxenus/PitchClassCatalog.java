@@ -0,0 +1,217 @@
+package src.aristoxenus;
+
+/**
+ * Precomputed properties of every 12-tone interval structure.
+ *
+ * There are only 2^12 = 4096 structures that fit in an octave, so each
+ * property is computed once for all of them and stored in a dense table
+ * indexed by the structure's bits (its mask). Every lookup is then a
+ * single array read.
+ *
+ * Mask bit i stands for the note i semitones above the root, as in
+ * IntervalBase; the octave bit (DIAPASON) is not part of the mask.
+ */
+public final class PitchClassCatalog {
+    /** Number of structures in the catalog. */
+    public static final int SIZE = 1 << Constants.TONES;
+
+    /** Number of interval classes in an interval-class vector. */
+    public static final int INTERVAL_CLASSES = Constants.TONES / 2;
+
+    private static final int IC_BITS = 4;
+    private static final int IC_MASK = (1 << IC_BITS) - 1;
+
+    private static final byte[] CARDINALITY = new byte[SIZE];
+    private static final short[] CANONICAL = new short[SIZE];
+    private static final byte[] CANONICAL_ROTATION = new byte[SIZE];
+    private static final int[] INTERVAL_VECTOR = new int[SIZE];
+    private static final byte[] SYMMETRY = new byte[SIZE];
+    private static final int[] MODE_START = new int[SIZE + 1];
+    private static final short[] MODES;
+
+    static {
+        int total_modes = 0;
+        for (int mask = 0; mask < SIZE; mask++) {
+            MODE_START[mask] = total_modes;
+            total_modes += Integer.bitCount(mask);
+        }
+        MODE_START[SIZE] = total_modes;
+        MODES = new short[total_modes];
+
+        for (int mask = 0; mask < SIZE; mask++) {
+            CARDINALITY[mask] = (byte) Integer.bitCount(mask);
+
+            // Rotation-canonical form: the smallest value among the 12
+            // rotations, which always has the root (bit 0) flipped.
+            int canonical = mask;
+            int canonical_rotation = 0;
+            int symmetry = 0;
+            for (int n = 0; n < Constants.TONES; n++) {
+                int rotation = rotateRight(mask, n);
+                if (rotation < canonical) {
+                    canonical = rotation;
+                    canonical_rotation = n;
+                }
+                if (rotation == mask) {
+                    symmetry++;
+                }
+            }
+            CANONICAL[mask] = (short) canonical;
+            CANONICAL_ROTATION[mask] = (byte) canonical_rotation;
+            SYMMETRY[mask] = (byte) symmetry;
+
+            // Modes: the structure rotated so that each flipped bit in
+            // turn becomes the root, in ascending order of that bit.
+            int slot = MODE_START[mask];
+            for (int i = Integer.numberOfTrailingZeros(mask); i < Constants.TONES;
+                    i = nextSetBit(mask, i + 1)) {
+                MODES[slot++] = (short) rotateRight(mask, i);
+            }
+
+            // Interval-class vector, packed 4 bits per class.
+            int vector = 0;
+            for (int i = 1; i <= INTERVAL_CLASSES; i++) {
+                int count = Integer.bitCount(mask & rotateRight(mask, i));
+                // The tritone pairs every note with its own partner twice.
+                if (i == INTERVAL_CLASSES) {
+                    count /= 2;
+                }
+                vector |= count << (IC_BITS * (i - 1));
+            }
+            INTERVAL_VECTOR[mask] = vector;
+        }
+    }
+
+    private PitchClassCatalog() {}
+
+    /** Return the number of flipped bits of [mask]. */
+    public static int cardinality(int mask) {
+        return CARDINALITY[mask];
+    }
+
+    /**
+     * Return the rotation-canonical form of [mask]: the smallest value
+     * reached by rotating it within 12 bits.
+     */
+    public static int canonical(int mask) {
+        return CANONICAL[mask];
+    }
+
+    /**
+     * Return the number of times [mask] must be rotated right to reach its
+     * canonical form.
+     */
+    public static int canonicalRotation(int mask) {
+        return CANONICAL_ROTATION[mask];
+    }
+
+    /**
+     * Return the degree of transpositional symmetry of [mask]: how many of
+     * its 12 rotations (including the identity) leave it unchanged.
+     */
+    public static int symmetry(int mask) {
+        return SYMMETRY[mask];
+    }
+
+    /** Return the number of modes of [mask], i.e. its cardinality. */
+    public static int modeCount(int mask) {
+        return MODE_START[mask + 1] - MODE_START[mask];
+    }
+
+    /**
+     * Return the [n]th mode of [mask]: the structure rotated so that its
+     * [n]th flipped bit (counting from the lowest) becomes the root.
+     */
+    public static int mode(int mask, int n) {
+        if (n < 0 | n >= modeCount(mask)) {
+            throw new IndexOutOfBoundsException(
+                    String.format("Mode %s is out of range for %s.", n, mask));
+        }
+        return MODES[MODE_START[mask] + n];
+    }
+
+    /** Return all modes of [mask] in a new array. */
+    public static int[] modes(int mask) {
+        int[] modes = new int[modeCount(mask)];
+        modes(mask, modes);
+        return modes;
+    }
+
+    /**
+     * Copy all modes of [mask] into the caller-supplied array [modes] and
+     * return how many were written.
+     */
+    public static int modes(int mask, int[] modes) {
+        int start = MODE_START[mask];
+        int count = MODE_START[mask + 1] - start;
+        for (int i = 0; i < count; i++) {
+            modes[i] = MODES[start + i];
+        }
+        return count;
+    }
+
+    /**
+     * Return the interval-class vector of [mask] in a new array: the
+     * number of hemitones, tones, hemiolia, ditones, diatessara and
+     * tritones between pairs of its notes.
+     */
+    public static int[] intervalVector(int mask) {
+        int[] vector = new int[INTERVAL_CLASSES];
+        for (int i = 0; i < INTERVAL_CLASSES; i++) {
+            vector[i] = intervalClassCount(mask, i + 1);
+        }
+        return vector;
+    }
+
+    /**
+     * Return the entry for [interval_class] (1 to 6) in the interval-class
+     * vector of [mask].
+     */
+    public static int intervalClassCount(int mask, int interval_class) {
+        return (INTERVAL_VECTOR[mask] >>> (IC_BITS * (interval_class - 1))) & IC_MASK;
+    }
+
+    /**
+     * Return the interval-class vector of [mask] packed 4 bits per class,
+     * with interval class 1 in the lowest bits.
+     */
+    public static int packedIntervalVector(int mask) {
+        return INTERVAL_VECTOR[mask];
+    }
+
+    /**
+     * Return the catalog index of an [interval_structure].
+     *
+     * @throws IllegalArgumentException If the structure does not fit in
+     *                                  12 bits.
+     */
+    public static int maskOf(IntervalBase interval_structure) {
+        if (!interval_structure.isValidIntervalStructure(Constants.TONES, 0)
+                || !interval_structure.isNarrow()) {
+            throw new IllegalArgumentException(
+                    "Only 12-tone structures are in the catalog.");
+        }
+        return (int) interval_structure.toPitchSet().longValue();
+    }
+
+    /**
+     * Return the pitch classes of any set of [pitches] as a catalog index:
+     * each flipped bit is folded into the octave.
+     */
+    public static int maskOf(WidePitchSet pitches) {
+        int mask = 0;
+        for (int i = pitches.nextSetBit(0); i >= 0; i = pitches.nextSetBit(i + 1)) {
+            mask |= 1 << (i % Constants.TONES);
+        }
+        return mask;
+    }
+
+    private static int rotateRight(int mask, int n) {
+        return (int) PitchSet.rotateRight(mask, n, Constants.TONES);
+    }
+
+    private static int nextSetBit(int mask, int from) {
+        int remaining = mask & (-1 << from);
+        return (remaining == 0) ? Constants.TONES : Integer.numberOfTrailingZeros(remaining);
+    }
+}
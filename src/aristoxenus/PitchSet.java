@@ -0,0 +1,202 @@
+package src.aristoxenus;
+
+import java.math.BigInteger;
+
+/**
+ * Immutable pitch map backed by a single primitive long.
+ *
+ * This is the primitive counterpart of IntervalBase for structures of up
+ * to 63 bits, which covers every 12-tone structure and every structure of
+ * up to five octaves. Instances with values in the 12-tone range (0 to
+ * 4095) are cached, so wrapping a 12-tone structure never allocates.
+ *
+ * Every operation is also available as a static method working directly
+ * on a long, for loops that must not allocate at all.
+ */
+public final class PitchSet {
+    private static final PitchSet[] CACHE = new PitchSet[1 << Constants.TONES];
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = new PitchSet(i);
+        }
+    }
+
+    /** The empty pitch set. */
+    public static final PitchSet EMPTY = CACHE[0];
+
+    private final long bits;
+
+    private PitchSet(long bits) {
+        this.bits = bits;
+    }
+
+    /**
+     * Return an instance wrapping the given [bits]. Values between 0 and
+     * 4095 come from a shared cache.
+     */
+    public static PitchSet valueOf(long bits) {
+        if (bits >= 0 && bits < CACHE.length) {
+            return CACHE[(int) bits];
+        }
+        return new PitchSet(bits);
+    }
+
+    /**
+     * Return an instance with the value of the given [interval].
+     *
+     * @throws ArithmeticException If the value does not fit in a long.
+     */
+    public static PitchSet valueOf(IntervalBase interval) {
+        return interval.toPitchSet();
+    }
+
+    /**
+     * Return an instance with the value of the given [interval].
+     *
+     * @throws ArithmeticException If the value does not fit in a long.
+     */
+    public static PitchSet valueOf(BigInteger interval) {
+        return valueOf(interval.longValueExact());
+    }
+
+    /** Return the wrapped value. */
+    public long longValue() {return this.bits;}
+
+    /** Return the value as a BigInteger. */
+    public BigInteger toBigInteger() {return BigInteger.valueOf(this.bits);}
+
+    /** Return the value wrapped in an IntervalBase. */
+    public IntervalBase toIntervalBase() {return new IntervalBase(this.bits);}
+
+    /** Return the value as a wide pitch set. */
+    public WidePitchSet toWidePitchSet() {return WidePitchSet.valueOf(this.bits);}
+
+    /** Return the number of bits in the number. */
+    public int bitLength() {return bitLength(this.bits);}
+
+    /** Return the number of flipped bits in the number. */
+    public int bitCount() {return Long.bitCount(this.bits);}
+
+    /** Return true if no bit is flipped. */
+    public boolean isEmpty() {return this.bits == 0;}
+
+    /** Return true if the bit at [position] is flipped. */
+    public boolean testBit(int position) {return testBit(this.bits, position);}
+
+    /**
+     * Return the position of the first flipped bit at or above [from], or
+     * -1 if there is none.
+     */
+    public int nextSetBit(int from) {return nextSetBit(this.bits, from);}
+
+    /** Return the position of the lowest flipped bit, or -1 if empty. */
+    public int lowestSetBit() {return nextSetBit(this.bits, 0);}
+
+    public PitchSet setBit(int position) {return valueOf(this.bits | (1L << position));}
+    public PitchSet clearBit(int position) {return valueOf(this.bits & ~(1L << position));}
+
+    public PitchSet and(PitchSet other) {return valueOf(this.bits & other.bits);}
+    public PitchSet and(long other) {return valueOf(this.bits & other);}
+    public PitchSet or(PitchSet other) {return valueOf(this.bits | other.bits);}
+    public PitchSet or(long other) {return valueOf(this.bits | other);}
+    public PitchSet xor(PitchSet other) {return valueOf(this.bits ^ other.bits);}
+    public PitchSet xor(long other) {return valueOf(this.bits ^ other);}
+    public PitchSet andNot(PitchSet other) {return valueOf(this.bits & ~other.bits);}
+    public PitchSet andNot(long other) {return valueOf(this.bits & ~other);}
+    public PitchSet add(long other) {return valueOf(this.bits + other);}
+
+    /** Result of bitwise NOT, following BigInteger (i.e. negative). */
+    public PitchSet not() {return valueOf(~this.bits);}
+
+    /** Result of bitwise NOT, limited to the lowest [max_bits]. */
+    public PitchSet complement(int max_bits) {return valueOf(~this.bits & mask(max_bits));}
+
+    /** Shift the bits left [n] times. */
+    public PitchSet shiftLeft(int n) {return valueOf(this.bits << n);}
+
+    /** Shift the bits right [n] times. */
+    public PitchSet shiftRight(int n) {return valueOf(this.bits >>> n);}
+
+    /** Rotate the bits of a collection with [max_bits] to the left 1 time. */
+    public PitchSet rotateLeft(int max_bits) {return valueOf(rotateLeft(this.bits, 1, max_bits));}
+
+    /** Rotate the bits of a collection with [max_bits] to the left [n] times. */
+    public PitchSet rotateLeft(int n, int max_bits) {return valueOf(rotateLeft(this.bits, n, max_bits));}
+
+    /** Rotate the bits of a collection with [max_bits] to the right 1 time. */
+    public PitchSet rotateRight(int max_bits) {return valueOf(rotateRight(this.bits, 1, max_bits));}
+
+    /** Rotate the bits of a collection with [max_bits] to the right [n] times. */
+    public PitchSet rotateRight(int n, int max_bits) {return valueOf(rotateRight(this.bits, n, max_bits));}
+
+    /** Return the binary representation of the number as a string. */
+    public String toBinaryString() {return Long.toBinaryString(this.bits);}
+
+    /** Return the decimal representation of the number as a string. */
+    @Override
+    public String toString() {return Long.toString(this.bits);}
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof PitchSet && ((PitchSet) other).bits == this.bits;
+    }
+
+    public boolean equals(long other) {return this.bits == other;}
+
+    @Override
+    public int hashCode() {return Long.hashCode(this.bits);}
+
+    /*
+     * Primitive forms of the operations above. These never allocate and
+     * are meant for inner loops that work on raw longs.
+     */
+
+    /** Return a value with the lowest [max_bits] flipped. */
+    public static long mask(int max_bits) {
+        return (max_bits >= Long.SIZE) ? -1L : (1L << max_bits) - 1;
+    }
+
+    /** Return the number of bits in [bits], ignoring the sign. */
+    public static int bitLength(long bits) {
+        return Long.SIZE - Long.numberOfLeadingZeros(bits);
+    }
+
+    /** Return true if the bit at [position] of [bits] is flipped. */
+    public static boolean testBit(long bits, int position) {
+        return position < Long.SIZE && (bits & (1L << position)) != 0;
+    }
+
+    /**
+     * Return the position of the first flipped bit of [bits] at or above
+     * [from], or -1 if there is none.
+     */
+    public static int nextSetBit(long bits, int from) {
+        if (from >= Long.SIZE) {
+            return -1;
+        }
+        long remaining = bits & (-1L << from);
+        return (remaining == 0) ? -1 : Long.numberOfTrailingZeros(remaining);
+    }
+
+    /**
+     * Rotate the lowest [max_bits] of [bits] to the left [n] times. Any
+     * bits at or above [max_bits] are discarded.
+     */
+    public static long rotateLeft(long bits, int n, int max_bits) {
+        return rotateRight(bits, max_bits - Math.floorMod(n, max_bits), max_bits);
+    }
+
+    /**
+     * Rotate the lowest [max_bits] of [bits] to the right [n] times. Any
+     * bits at or above [max_bits] are discarded.
+     */
+    public static long rotateRight(long bits, int n, int max_bits) {
+        long mask = mask(max_bits);
+        bits &= mask;
+        n = Math.floorMod(n, max_bits);
+        if (n == 0) {
+            return bits;
+        }
+        return ((bits >>> n) | (bits << (max_bits - n))) & mask;
+    }
+}
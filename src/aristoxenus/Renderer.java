@@ -0,0 +1,242 @@
+package src.aristoxenus;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A renderer compiled for one chromatic scale.
+ *
+ * Compiling lays the note names of the scale out over every bit position
+ * a WidePitchSet can hold, repeating the scale as needed, so rendering a
+ * structure is a walk over its flipped bits with one array read each.
+ * Output can go to a list or straight into any Appendable.
+ *
+ * Renderers are immutable and can be shared between threads.
+ */
+public final class Renderer {
+    /** Maximum number of compiled scales remembered by forScale. */
+    public static final int CACHE_LIMIT = 256;
+
+    private static final Map<List<String>, Renderer> CACHE = new ConcurrentHashMap<>();
+    private static final List<String> BINOMIAL_SCALE = List.copyOf(Nomenclature.chromatic());
+    private static final Renderer BINOMIAL = compile(BINOMIAL_SCALE);
+
+    /**
+     * The scale forScale was last called with, and its renderer. Repeated
+     * calls with one scale, the usual case, are answered without hashing
+     * the scale: by reference if it cannot be modified, otherwise by
+     * comparing its names.
+     */
+    private static Memo last = new Memo(BINOMIAL_SCALE, BINOMIAL);
+
+    private static final class Memo {
+        final List<String> scale;
+        final boolean immutable;
+        final Renderer renderer;
+
+        Memo(List<String> scale, Renderer renderer) {
+            this.scale = scale;
+            this.immutable = List.copyOf(scale) == scale;
+            this.renderer = renderer;
+        }
+    }
+
+    private final String[] names = new String[WidePitchSet.CAPACITY];
+    private final int size;
+
+    private Renderer(List<String> chromatic_scale) {
+        this.size = chromatic_scale.size();
+        for (int i = 0; i < names.length; i++) {
+            names[i] = chromatic_scale.get(i % chromatic_scale.size());
+        }
+    }
+
+    /**
+     * Compile a renderer for the given [chromatic_scale].
+     *
+     * @param chromatic_scale   A chromatic scale that will mask the
+     *                          interval structures; usually 12 notes.
+     */
+    public static Renderer compile(List<String> chromatic_scale) {
+        if (chromatic_scale.isEmpty()) {
+            throw new IllegalArgumentException("Cannot render with an empty scale.");
+        }
+        return new Renderer(chromatic_scale);
+    }
+
+    /**
+     * Return a renderer for the given [chromatic_scale], compiling it only
+     * the first time the scale is seen.
+     *
+     * Calling again with the same scale is quickest if the scale cannot be
+     * modified (e.g. from List.of or List.copyOf); in a hot loop, holding
+     * on to the renderer is quicker still.
+     */
+    public static Renderer forScale(List<String> chromatic_scale) {
+        Memo memo = last;
+        if (memo.scale == chromatic_scale && memo.immutable || memo.renderer.isFor(chromatic_scale)) {
+            return memo.renderer;
+        }
+        return lookup(chromatic_scale);
+    }
+
+    /** Find or compile the renderer for a [chromatic_scale] not seen last. */
+    private static Renderer lookup(List<String> chromatic_scale) {
+        Renderer renderer = CACHE.get(chromatic_scale);
+        if (renderer == null) {
+            renderer = compile(chromatic_scale);
+            if (CACHE.size() < CACHE_LIMIT) {
+                CACHE.putIfAbsent(List.copyOf(chromatic_scale), renderer);
+            }
+        }
+        last = new Memo(chromatic_scale, renderer);
+        return renderer;
+    }
+
+    /** Return the renderer for the binomial chromatic scale. */
+    public static Renderer binomial() {
+        return BINOMIAL;
+    }
+
+    /**
+     * Check whether this renderer was compiled for a [chromatic_scale]
+     * with the same names. The names are usually the very same strings,
+     * so this is mostly reference comparisons.
+     */
+    public boolean isFor(List<String> chromatic_scale) {
+        if (chromatic_scale.size() != size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            String name = chromatic_scale.get(i);
+            if (name != names[i] && !names[i].equals(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Return the note name used for bit [position]. */
+    public String name(int position) {
+        return names[position];
+    }
+
+    /** Return the names of the flipped bits of [mask]. */
+    public List<String> render(long mask) {
+        List<String> rendering = new ArrayList<String>(Long.bitCount(mask));
+        for (long bits = mask; bits != 0; bits &= bits - 1) {
+            rendering.add(names[Long.numberOfTrailingZeros(bits)]);
+        }
+        return rendering;
+    }
+
+    /** Return the names of the flipped bits of [interval_structure]. */
+    public List<String> render(WidePitchSet interval_structure) {
+        List<String> rendering = new ArrayList<String>(interval_structure.bitCount());
+        for (long bits = interval_structure.low(); bits != 0; bits &= bits - 1) {
+            rendering.add(names[Long.numberOfTrailingZeros(bits)]);
+        }
+        for (long bits = interval_structure.high(); bits != 0; bits &= bits - 1) {
+            rendering.add(names[Long.SIZE + Long.numberOfTrailingZeros(bits)]);
+        }
+        return rendering;
+    }
+
+    /**
+     * Return the names of the flipped bits of [interval_structure].
+     *
+     * @throws ArithmeticException If the structure is wider than a
+     *                             WidePitchSet.
+     */
+    public List<String> render(IntervalBase interval_structure) {
+        return render(interval_structure.toWidePitchSet());
+    }
+
+    /**
+     * Append the names of the flipped bits of [mask] to [out], with
+     * [separator] between them.
+     *
+     * @return [out]
+     */
+    public <A extends Appendable> A render(long mask, A out, CharSequence separator)
+            throws IOException {
+        return render(mask, 0, out, separator, true);
+    }
+
+    /**
+     * Append the names of the flipped bits of [interval_structure] to
+     * [out], with [separator] between them.
+     *
+     * @return [out]
+     */
+    public <A extends Appendable> A render(WidePitchSet interval_structure, A out,
+            CharSequence separator) throws IOException {
+        render(interval_structure.low(), 0, out, separator, true);
+        return render(interval_structure.high(), Long.SIZE, out, separator,
+                interval_structure.low() == 0);
+    }
+
+    /**
+     * Append the names of the flipped bits of [mask] to [out], with
+     * [separator] between them. StringBuilder form, which cannot fail.
+     *
+     * @return [out]
+     */
+    public StringBuilder render(long mask, StringBuilder out, CharSequence separator) {
+        try {
+            return render(mask, 0, out, separator, true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Render a batch of [masks], one string per mask, with [separator]
+     * between the note names. A single builder is reused for the batch.
+     */
+    public String[] renderAll(long[] masks, CharSequence separator) {
+        String[] renderings = new String[masks.length];
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < masks.length; i++) {
+            out.setLength(0);
+            renderings[i] = render(masks[i], out, separator).toString();
+        }
+        return renderings;
+    }
+
+    /**
+     * Render a batch of [masks] into [out], with [separator] between the
+     * note names and [line_separator] after each mask.
+     *
+     * @return [out]
+     */
+    public <A extends Appendable> A renderAll(long[] masks, A out, CharSequence separator,
+            CharSequence line_separator) throws IOException {
+        for (long mask : masks) {
+            render(mask, 0, out, separator, true);
+            out.append(line_separator);
+        }
+        return out;
+    }
+
+    /**
+     * Append the names of the flipped bits of a [word] whose lowest bit is
+     * at position [offset]. [first] says whether nothing has been written
+     * yet, i.e. whether the first name goes without a separator.
+     */
+    private <A extends Appendable> A render(long word, int offset, A out,
+            CharSequence separator, boolean first) throws IOException {
+        for (long bits = word; bits != 0; bits &= bits - 1) {
+            if (!first) {
+                out.append(separator);
+            }
+            out.append(names[offset + Long.numberOfTrailingZeros(bits)]);
+            first = false;
+        }
+        return out;
+    }
+}
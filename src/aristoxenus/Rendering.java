@@ -1,9 +1,14 @@
 package src.aristoxenus;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.stream.Stream;
 
+/**
+ * Functions for turning interval structures into note names.
+ * 
+ * The work is done by Renderers, which are compiled once per chromatic
+ * scale and remembered; use a Renderer directly to write into an
+ * Appendable or to render batches of structures.
+ */
 public class Rendering {
 
 
@@ -18,45 +23,65 @@ public class Rendering {
      *                              given structure.
      */
     public static List<String> renderPlain(IntervalBase interval_structure, List<String> chromatic_scale){
-        if (interval_structure.bitLength() > chromatic_scale.size()){
-            int n = (int) ((double) chromatic_scale.size() / (double) Constants.TONES) + 1;
-            chromatic_scale = Functions.repeatList(chromatic_scale, n);
+        if (interval_structure.bitLength() <= WidePitchSet.CAPACITY){
+            return Renderer.forScale(chromatic_scale).render(interval_structure);
         }
-        int column;
-        List<String> rendering = new ArrayList<String>();
-        for (int i=0; i < interval_structure.bitLength(); i++){
-            column = 1 << i;
-            if (interval_structure.and(column).equals(column)){
-                rendering.add(chromatic_scale.get(i));
-            }
-        }
-        return rendering;
+        return renderBeyondCapacity(interval_structure, chromatic_scale);
     }
     /**
      * Return a human-readable list of strings representing an 
      * [interval_structure] using the notes of a binomial chromatic scale.
      * 
      * @param interval_structure    An interval collection to be rendered.
-     * @param chromatic_scale       A 12-note chromatic scale that will mask
-     *                              the interval structure. 
      * @return                      A list of note names representing the
      *                              given structure.
      */
     public static List<String> renderPlain(IntervalBase interval_structure){
-        List<String> chromatic_scale = Nomenclature.chromatic();
-        if (interval_structure.bitLength() > chromatic_scale.size()){
-            int n = (int) ((double) chromatic_scale.size() / (double) Constants.TONES) + 1;
-            chromatic_scale = Functions.repeatList(chromatic_scale, n);
+        if (interval_structure.bitLength() <= WidePitchSet.CAPACITY){
+            return Renderer.binomial().render(interval_structure);
         }
-        int column;
+        return renderBeyondCapacity(interval_structure, Nomenclature.chromatic());
+    }
+
+
+    /**
+     * Return a human-readable list of strings representing a primitive
+     * [interval_structure] using the notes of a [chromatic_scale].
+     * 
+     * @param interval_structure    An interval collection to be rendered.
+     * @param chromatic_scale       A 12-note chromatic scale that will mask
+     *                              the interval structure. 
+     * @return                      A list of note names representing the
+     *                              given structure.
+     */
+    public static List<String> renderPlain(PitchSet interval_structure, List<String> chromatic_scale){
+        return Renderer.forScale(chromatic_scale).render(interval_structure.longValue());
+    }
+    /**
+     * Return a human-readable list of strings representing a wide primitive
+     * [interval_structure] using the notes of a [chromatic_scale].
+     * 
+     * @param interval_structure    An interval collection to be rendered.
+     * @param chromatic_scale       A 12-note chromatic scale that will mask
+     *                              the interval structure. 
+     * @return                      A list of note names representing the
+     *                              given structure.
+     */
+    public static List<String> renderPlain(WidePitchSet interval_structure, List<String> chromatic_scale){
+        return Renderer.forScale(chromatic_scale).render(interval_structure);
+    }
+
+
+    /**
+     * Render an [interval_structure] too wide for a Renderer by probing
+     * each bit in turn.
+     */
+    private static List<String> renderBeyondCapacity(IntervalBase interval_structure, List<String> chromatic_scale){
         List<String> rendering = new ArrayList<String>();
-        for (int i=0; i < interval_structure.bitLength(); i++){
-            column = 1 << i;
-            if (interval_structure.and(column).equals(column)){
-                rendering.add(chromatic_scale.get(i));
-            }
+        for (int i = interval_structure.nextSetBit(0); i >= 0; i = interval_structure.nextSetBit(i + 1)){
+            rendering.add(chromatic_scale.get(i % chromatic_scale.size()));
         }
         return rendering;
     }
-    
+
 }
@@ -0,0 +1,365 @@
+package src.aristoxenus;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import src.aristoxenus.Classes.PitchInterval;
+import src.aristoxenus.Classes.TimedStructure;
+
+/**
+ * A bank of rendered clips in a single file.
+ *
+ * The file starts with a header and an index with one entry per clip
+ * (root, structure, length and position), followed by the clips. Each
+ * clip is stored as a complete WAV file, so a clip can be copied out of
+ * the bank as it is, without being read into memory (see extract).
+ *
+ * export() lays the whole bank out in advance and renders the clips in
+ * parallel, each worker writing its own run of clips into a memory-mapped
+ * region of the file. Each region must fit in one mapping (2 GiB), but
+ * the bank as a whole may be any size.
+ *
+ * All numbers in the file are little-endian:
+ *
+ *     header  = "AXSB" version sample_rate bits_per_sample count (int32)
+ *               reserved (int32) data_start (int64)
+ *     entry   = root samples (int32) low high offset (int64)
+ */
+public final class SampleBank implements Closeable {
+    /** Version of the file layout written by export. */
+    public static final int VERSION = 2;
+
+    /** Number of bytes in the file header. */
+    public static final int HEADER_SIZE = 32;
+
+    /** Number of bytes in each index entry. */
+    public static final int ENTRY_SIZE = 32;
+
+    private static final byte[] MAGIC = "AXSB".getBytes(StandardCharsets.US_ASCII);
+
+    /** Clip runs with fewer clips than this are rendered without splitting. */
+    private static final int CLIPS_PER_TASK = 16;
+
+    /** Regions larger than this are split even if they have few clips. */
+    private static final long MAX_REGION = 64L << 20;
+
+    private final FileChannel channel;
+    private final int sample_rate;
+    private final int bits_per_sample;
+    private final int[] roots;
+    private final int[] samples;
+    private final long[] lows;
+    private final long[] highs;
+    private final long[] offsets;
+
+    private SampleBank(FileChannel channel, int sample_rate, int bits_per_sample, int count) {
+        this.channel = channel;
+        this.sample_rate = sample_rate;
+        this.bits_per_sample = bits_per_sample;
+        this.roots = new int[count];
+        this.samples = new int[count];
+        this.lows = new long[count];
+        this.highs = new long[count];
+        this.offsets = new long[count];
+    }
+
+    /**
+     * Return a clip for each of the [interval_structures] on each root
+     * pitch in [roots] whose notes all fit in the scientific range, e.g.
+     * every chord type across every pitch.
+     */
+    public static List<TimedStructure> clips(int[] interval_structures, PitchInterval roots,
+            double seconds) {
+        List<TimedStructure> clips = new ArrayList<TimedStructure>();
+        for (int structure : interval_structures) {
+            WidePitchSet pitches = WidePitchSet.valueOf(structure);
+            for (int root = roots.low; root < roots.high; root++) {
+                if (ScientificPitch.isInRange(root)
+                        && ScientificPitch.isInRange(root + Math.max(pitches.bitLength() - 1, 0))) {
+                    clips.add(new TimedStructure(root, pitches, seconds));
+                }
+            }
+        }
+        return clips;
+    }
+
+    /**
+     * Render the [clips] into a new bank at [path], in parallel on the
+     * common pool.
+     *
+     * @see #export(Path, List, int, int, ForkJoinPool)
+     */
+    public static void export(Path path, List<TimedStructure> clips, int sample_rate,
+            int bits_per_sample) throws IOException {
+        export(path, clips, sample_rate, bits_per_sample, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Render the [clips] into a new bank at [path].
+     *
+     * @param path              The bank file; replaced if it exists.
+     * @param clips             The structures to render, in index order.
+     * @param sample_rate       Samples per second.
+     * @param bits_per_sample   16 or 24.
+     * @param pool              The pool to render on.
+     */
+    public static void export(Path path, List<TimedStructure> clips, int sample_rate,
+            int bits_per_sample, ForkJoinPool pool) throws IOException {
+        WaveFile.check(sample_rate, bits_per_sample);
+        int count = clips.size();
+        int bytes_per_sample = bits_per_sample / Byte.SIZE;
+        long[] offsets = new long[count + 1];
+        int[] lengths = new int[count];
+        offsets[0] = HEADER_SIZE + (long) ENTRY_SIZE * count;
+        for (int i = 0; i < count; i++) {
+            long length = Math.round(clips.get(i).seconds * sample_rate);
+            long size = WaveFile.fileSize(length * bytes_per_sample);
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(
+                        String.format("Clip %s is too long to map.", i));
+            }
+            lengths[i] = (int) length;
+            offsets[i + 1] = offsets[i] + size;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer index = ByteBuffer.allocate((int) offsets[0]).order(ByteOrder.LITTLE_ENDIAN);
+            index.put(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(sample_rate)
+                    .putInt(bits_per_sample)
+                    .putInt(count)
+                    .putInt(0)
+                    .putLong(offsets[0]);
+            for (int i = 0; i < count; i++) {
+                TimedStructure clip = clips.get(i);
+                index.putInt(clip.root)
+                        .putInt(lengths[i])
+                        .putLong(clip.pitches.low())
+                        .putLong(clip.pitches.high())
+                        .putLong(offsets[i]);
+            }
+            index.flip();
+            while (index.hasRemaining()) {
+                channel.write(index, index.position());
+            }
+            ExportTask task = new ExportTask(channel, clips, offsets, lengths, sample_rate,
+                    bits_per_sample, 0, count);
+            pool.invoke(task);
+            if (task.failure != null) {
+                throw task.failure;
+            }
+        }
+    }
+
+    /**
+     * Open an existing bank for reading.
+     *
+     * @throws IOException If the file is not a bank.
+     */
+    public static SampleBank open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = read(channel, 0, HEADER_SIZE);
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            if (!Arrays.equals(magic, MAGIC) || header.getInt() != VERSION) {
+                throw new IOException(String.format("%s is not a sample bank.", path));
+            }
+            int sample_rate = header.getInt();
+            int bits_per_sample = header.getInt();
+            int count = header.getInt();
+            SampleBank bank = new SampleBank(channel, sample_rate, bits_per_sample, count);
+            ByteBuffer index = read(channel, HEADER_SIZE, (long) ENTRY_SIZE * count);
+            for (int i = 0; i < count; i++) {
+                bank.roots[i] = index.getInt();
+                bank.samples[i] = index.getInt();
+                bank.lows[i] = index.getLong();
+                bank.highs[i] = index.getLong();
+                bank.offsets[i] = index.getLong();
+            }
+            return bank;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /** Return the number of clips in the bank. */
+    public int size() {
+        return roots.length;
+    }
+
+    /** Return the samples per second of every clip. */
+    public int sampleRate() {
+        return sample_rate;
+    }
+
+    /** Return the bits per sample of every clip. */
+    public int bitsPerSample() {
+        return bits_per_sample;
+    }
+
+    /** Return the root pitch number of clip [i]. */
+    public int root(int i) {
+        return roots[i];
+    }
+
+    /** Return the structure of clip [i]. */
+    public WidePitchSet pitches(int i) {
+        return WidePitchSet.valueOf(lows[i], highs[i]);
+    }
+
+    /** Return the number of samples in clip [i]. */
+    public int samples(int i) {
+        return samples[i];
+    }
+
+    /**
+     * Return the index of the first clip of [pitches] on [root], or -1 if
+     * the bank has none.
+     */
+    public int find(int root, WidePitchSet pitches) {
+        for (int i = 0; i < roots.length; i++) {
+            if (roots[i] == root && lows[i] == pitches.low() && highs[i] == pitches.high()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Copy clip [i], as a WAV file, to the [target] channel without
+     * reading it into memory.
+     *
+     * @return The number of bytes copied.
+     */
+    public long extract(int i, WritableByteChannel target) throws IOException {
+        long start = offsets[i];
+        long size = WaveFile.fileSize((long) samples[i] * (bits_per_sample / Byte.SIZE));
+        long copied = 0;
+        while (copied < size) {
+            long n = channel.transferTo(start + copied, size - copied, target);
+            if (n <= 0) {
+                throw new IOException(String.format("Clip %s is truncated.", i));
+            }
+            copied += n;
+        }
+        return copied;
+    }
+
+    /**
+     * Copy clip [i] to a new WAV file at [path].
+     */
+    public void extract(int i, Path path) throws IOException {
+        try (FileChannel target = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            extract(i, target);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, long size)
+            throws IOException {
+        if (position + size > channel.size()) {
+            throw new IOException("Sample bank is truncated.");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Sample bank is truncated.");
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Render clips [from] to [to] into their places in the bank, splitting
+     * the run in half until it is small enough for one mapped region.
+     */
+    @SuppressWarnings("serial")
+    private static final class ExportTask extends RecursiveAction {
+        private final FileChannel channel;
+        private final List<TimedStructure> clips;
+        private final long[] offsets;
+        private final int[] lengths;
+        private final int sample_rate;
+        private final int bits_per_sample;
+        private final int from;
+        private final int to;
+        private IOException failure;
+
+        private ExportTask(FileChannel channel, List<TimedStructure> clips, long[] offsets,
+                int[] lengths, int sample_rate, int bits_per_sample, int from, int to) {
+            this.channel = channel;
+            this.clips = clips;
+            this.offsets = offsets;
+            this.lengths = lengths;
+            this.sample_rate = sample_rate;
+            this.bits_per_sample = bits_per_sample;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1 && (to - from > CLIPS_PER_TASK
+                    || offsets[to] - offsets[from] > MAX_REGION)) {
+                int middle = (from + to) >>> 1;
+                ExportTask left = new ExportTask(channel, clips, offsets, lengths, sample_rate,
+                        bits_per_sample, from, middle);
+                ExportTask right = new ExportTask(channel, clips, offsets, lengths, sample_rate,
+                        bits_per_sample, middle, to);
+                invokeAll(left, right);
+                failure = left.failure != null ? left.failure : right.failure;
+                return;
+            }
+            try {
+                render();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        private void render() throws IOException {
+            if (from == to) {
+                return;
+            }
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE,
+                    offsets[from], offsets[to] - offsets[from]);
+            region.order(ByteOrder.LITTLE_ENDIAN);
+            Synthesizer synthesizer = new Synthesizer(sample_rate);
+            int bytes_per_sample = bits_per_sample / Byte.SIZE;
+            float scale = WaveFile.scale(bits_per_sample);
+            for (int i = from; i < to; i++) {
+                TimedStructure clip = clips.get(i);
+                long data_size = (long) lengths[i] * bytes_per_sample;
+                WaveFile.putHeader(region, sample_rate, bits_per_sample, data_size);
+                synthesizer.render(clip.root, clip.pitches, clip.seconds, (block, length) ->
+                        WaveFile.putSamples(region, block, 0, length, bytes_per_sample, scale));
+                if ((data_size & 1) != 0) {
+                    region.put((byte) 0);
+                }
+            }
+        }
+    }
+}
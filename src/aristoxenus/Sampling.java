@@ -0,0 +1,172 @@
+package src.aristoxenus;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.LongStream;
+
+/**
+ * Uniform random interval structures, for stochastic composition.
+ *
+ * Every structure of the requested width and cardinality is equally
+ * likely, and each one is generated directly rather than by rejecting
+ * invalid candidates. Structures are returned as masks (see PitchSet).
+ *
+ * A sampler is not thread-safe, but split() gives an independent sampler
+ * for another thread, and the bulk methods do the splitting themselves.
+ */
+public class Sampling {
+
+    /** Arrays smaller than this are filled without further splitting. */
+    private static final int SEQUENTIAL_THRESHOLD = 1 << 14;
+
+    private final SplittableRandom random;
+
+    /** Create a sampler with an unpredictable seed. */
+    public Sampling() {
+        this(new SplittableRandom());
+    }
+
+    /** Create a sampler that always produces the same structures for a [seed]. */
+    public Sampling(long seed) {
+        this(new SplittableRandom(seed));
+    }
+
+    private Sampling(SplittableRandom random) {
+        this.random = random;
+    }
+
+    /** Return a new sampler, independent of this one, for use on another thread. */
+    public Sampling split() {
+        return new Sampling(random.split());
+    }
+
+    /**
+     * Return a uniformly chosen mask of at most [width] bits with exactly
+     * [cardinality] flipped.
+     *
+     * Uses Floyd's algorithm, which draws one random number per note.
+     */
+    public long sample(int width, int cardinality) {
+        check(width, cardinality);
+        long mask = 0;
+        for (int j = width - cardinality; j < width; j++) {
+            int t = random.nextInt(j + 1);
+            long bit = 1L << t;
+            mask |= ((mask & bit) == 0) ? bit : 1L << j;
+        }
+        return mask;
+    }
+
+    /**
+     * Return a uniformly chosen mask of at most [width] bits with exactly
+     * [cardinality] flipped, one of which is the root (bit 0). These are
+     * the structures that can serve as scales or chords.
+     */
+    public long sampleRooted(int width, int cardinality) {
+        if (cardinality < 1) {
+            throw new IllegalArgumentException("Structure must include the root.");
+        }
+        return (sample(width - 1, cardinality - 1) << 1) | 1;
+    }
+
+    /**
+     * Return a uniformly chosen rooted structure of [max_bits] with
+     * [flipped_bits], as IntervalBase.isValidIntervalStructure describes.
+     */
+    public IntervalBase sampleStructure(int max_bits, int flipped_bits) {
+        return new IntervalBase(sampleRooted(max_bits, flipped_bits));
+    }
+
+    /**
+     * Return a stream of [count] uniformly chosen masks of at most [width]
+     * bits with [cardinality] flipped. The stream may be made parallel;
+     * its random numbers split along with it.
+     */
+    public LongStream samples(long count, int width, int cardinality) {
+        check(width, cardinality);
+        long total = Permutation.binomial(width, cardinality);
+        return random.longs(count, 0, total)
+                .map(rank -> Permutation.unrank(rank, width, cardinality));
+    }
+
+    /**
+     * Return a stream of [count] uniformly chosen rooted masks; see
+     * sampleRooted.
+     */
+    public LongStream rootedSamples(long count, int width, int cardinality) {
+        return samples(count, width - 1, cardinality - 1).map(mask -> (mask << 1) | 1);
+    }
+
+    /**
+     * Fill [masks] with uniformly chosen masks of at most [width] bits with
+     * [cardinality] flipped, in parallel on the common pool.
+     */
+    public void fill(long[] masks, int width, int cardinality) {
+        check(width, cardinality);
+        ForkJoinPool.commonPool().invoke(
+                new FillTask(split(), masks, 0, masks.length, width, cardinality, false));
+    }
+
+    /**
+     * Fill [masks] with uniformly chosen rooted masks; see sampleRooted.
+     */
+    public void fillRooted(long[] masks, int width, int cardinality) {
+        if (cardinality < 1) {
+            throw new IllegalArgumentException("Structure must include the root.");
+        }
+        check(width - 1, cardinality - 1);
+        ForkJoinPool.commonPool().invoke(
+                new FillTask(split(), masks, 0, masks.length, width, cardinality, true));
+    }
+
+    private static void check(int width, int cardinality) {
+        if (width < 0 | width > Permutation.MAX_NARROW_BITS
+                | cardinality < 0 | cardinality > width) {
+            throw new IllegalArgumentException(String.format(
+                    "Cannot choose %s of %s bits.", cardinality, width));
+        }
+    }
+
+    /**
+     * Fill the range [from, to) of [masks], giving each half its own split
+     * of the random generator.
+     */
+    @SuppressWarnings("serial")
+    private static final class FillTask extends RecursiveAction {
+        private final Sampling sampling;
+        private final long[] masks;
+        private final int from;
+        private final int to;
+        private final int width;
+        private final int cardinality;
+        private final boolean rooted;
+
+        private FillTask(Sampling sampling, long[] masks, int from, int to,
+                int width, int cardinality, boolean rooted) {
+            this.sampling = sampling;
+            this.masks = masks;
+            this.from = from;
+            this.to = to;
+            this.width = width;
+            this.cardinality = cardinality;
+            this.rooted = rooted;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    masks[i] = rooted
+                            ? sampling.sampleRooted(width, cardinality)
+                            : sampling.sample(width, cardinality);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(
+                    new FillTask(sampling.split(), masks, from, middle, width, cardinality, rooted),
+                    new FillTask(sampling, masks, middle, to, width, cardinality, rooted));
+        }
+    }
+}
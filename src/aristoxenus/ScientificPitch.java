@@ -0,0 +1,143 @@
+package src.aristoxenus;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import src.aristoxenus.Classes.PitchInterval;
+
+/**
+ * Absolute pitch numbers for scientific note names.
+ *
+ * A pitch number is the index of a note in Nomenclature.scientificRange(),
+ * so C0 = 0, A4 = 57 and the range holds NUMBER_OF_OCTAVES octaves. The
+ * MIDI note number of a pitch is MIDI_OFFSET higher (C4 = 60).
+ *
+ * Names are read with NoteName and written from small constant tables,
+ * so converting either way is a little arithmetic and one array read.
+ */
+public final class ScientificPitch {
+    /** Number of pitches in the scientific range. */
+    public static final int SIZE = Constants.TONES * Constants.NUMBER_OF_OCTAVES;
+
+    /** Every pitch in the scientific range. */
+    public static final PitchInterval RANGE = new PitchInterval(0, SIZE);
+
+    /** MIDI note number of pitch 0 (C0). */
+    public static final int MIDI_OFFSET = Constants.TONES;
+
+    /** Scientific names of every pitch, one table per Constants.ACCIDENTAL_TYPES. */
+    private static final List<List<String>> NAMES;
+    private static final List<String> BINOMIAL_NAMES;
+
+    static {
+        List<List<String>> names = new ArrayList<List<String>>();
+        for (List<String> accidental_notes : Constants.ACCIDENTAL_TYPES) {
+            List<String> chromatic = Nomenclature.chromatic(accidental_notes);
+            String[] table = new String[SIZE];
+            for (int pitch = 0; pitch < SIZE; pitch++) {
+                table[pitch] = chromatic.get(pitch % Constants.TONES) + pitch / Constants.TONES;
+            }
+            names.add(List.of(table));
+        }
+        NAMES = List.copyOf(names);
+        BINOMIAL_NAMES = NAMES.get(Constants.ACCIDENTAL_TYPES.indexOf(Constants.BINOMIALS));
+    }
+
+    /**
+     * Return the pitch number of any scientific [note_name], e.g.
+     * "A4" -> 57, "B#4" -> 60, "C#|Db4" -> 49.
+     *
+     * @throws IllegalArgumentException  If the name is not scientific.
+     * @throws IndexOutOfBoundsException If the note is outside the range.
+     */
+    public static int pitchOf(String note_name) {
+        int note = NoteName.parse(note_name);
+        if (!NoteName.hasOctave(note)) {
+            throw new IllegalArgumentException(
+                    "Must be a scientific note name in octave 0 to 8");
+        }
+        return checked(NoteName.pitch(note));
+    }
+
+    /**
+     * Return the scientific binomial name of a [pitch], e.g. 49 -> "C#|Db4".
+     */
+    public static String name(int pitch) {
+        return BINOMIAL_NAMES.get(checked(pitch));
+    }
+
+    /**
+     * Return the scientific name of a [pitch] with the given type of
+     * [accidental_notes], e.g. (49, FLATS) -> "Db4".
+     *
+     * @param accidental_notes Constants.SHARPS, .FLATS, or .BINOMIALS
+     */
+    public static String name(int pitch, List<String> accidental_notes) {
+        return names(accidental_notes).get(checked(pitch));
+    }
+
+    /**
+     * Return the scientific names of the whole range with the given type
+     * of [accidental_notes]. The list is shared and cannot be modified.
+     *
+     * @param accidental_notes Constants.SHARPS, .FLATS, or .BINOMIALS
+     */
+    public static List<String> names(List<String> accidental_notes) {
+        int type = Constants.ACCIDENTAL_TYPES.indexOf(accidental_notes);
+        if (type < 0) {
+            throw new IllegalArgumentException("Unknown accidental type.");
+        }
+        return NAMES.get(type);
+    }
+
+    /**
+     * Return the scientific names of the pitches in an [interval] with the
+     * given type of [accidental_notes]. The list is a view of a shared
+     * table and cannot be modified.
+     */
+    public static List<String> names(PitchInterval interval, List<String> accidental_notes) {
+        if (!RANGE.contains(interval)) {
+            throw new IndexOutOfBoundsException(
+                    String.format("%s is out of the legal range.", interval));
+        }
+        return names(accidental_notes).subList(interval.low, interval.high);
+    }
+
+    /** Return the pitches of an [octave], e.g. 4 -> [48, 60). */
+    public static PitchInterval octave(int octave) {
+        return new PitchInterval(octave * Constants.TONES, (octave + 1) * Constants.TONES);
+    }
+
+    /** Return the octave of a [pitch]. */
+    public static int octaveOf(int pitch) {
+        return Math.floorDiv(pitch, Constants.TONES);
+    }
+
+    /** Return the pitch class of a [pitch], 0 = C. */
+    public static int pitchClassOf(int pitch) {
+        return Math.floorMod(pitch, Constants.TONES);
+    }
+
+    /** Return the MIDI note number of a [pitch]. */
+    public static int toMidi(int pitch) {
+        return pitch + MIDI_OFFSET;
+    }
+
+    /** Return the pitch of a [midi_note] number. */
+    public static int fromMidi(int midi_note) {
+        return midi_note - MIDI_OFFSET;
+    }
+
+    /** Check whether a [pitch] is in the scientific range. */
+    public static boolean isInRange(int pitch) {
+        return RANGE.contains(pitch);
+    }
+
+    private static int checked(int pitch) {
+        if (!RANGE.contains(pitch)) {
+            throw new IndexOutOfBoundsException(
+                    "Target is out of the legal range.");
+        }
+        return pitch;
+    }
+}
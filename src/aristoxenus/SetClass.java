@@ -0,0 +1,226 @@
+package src.aristoxenus;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Canonical forms of 12-tone interval structures under transposition and
+ * inversion.
+ *
+ * Two structures belong to the same transposition class if one is a
+ * rotation of the other, and to the same inversion class if one is a
+ * rotation of the other or of its mirror image. Each class is represented
+ * by its smallest member when read as a number, which is the most tightly
+ * packed ordering (Rahn's normal form), and every class is given a dense
+ * id ordered by cardinality and then by that representative.
+ *
+ * Everything is read from tables built once over all 4096 structures, so
+ * each query is constant time. Masks use the same bits as the
+ * PitchClassCatalog.
+ */
+public final class SetClass {
+    /** Number of transposition classes, including the empty structure. */
+    public static final int TRANSPOSITION_CLASSES;
+
+    /** Number of inversion classes, including the empty structure. */
+    public static final int INVERSION_CLASSES;
+
+    private static final short[] INVERSION = new short[PitchClassCatalog.SIZE];
+    private static final short[] PRIME = new short[PitchClassCatalog.SIZE];
+    private static final short[] TRANSPOSITION_CLASS = new short[PitchClassCatalog.SIZE];
+    private static final short[] INVERSION_CLASS = new short[PitchClassCatalog.SIZE];
+    private static final short[] NORMAL_FORMS;
+    private static final short[] PRIME_FORMS;
+
+    static {
+        for (int mask = 0; mask < PitchClassCatalog.SIZE; mask++) {
+            // Mirror bit i to bit (12 - i) % 12.
+            int mirrored = Integer.reverse(mask) >>> (Integer.SIZE - Constants.TONES);
+            INVERSION[mask] = (short) PitchSet.rotateLeft(mirrored, 1, Constants.TONES);
+        }
+        for (int mask = 0; mask < PitchClassCatalog.SIZE; mask++) {
+            PRIME[mask] = (short) Math.min(
+                    PitchClassCatalog.canonical(mask),
+                    PitchClassCatalog.canonical(INVERSION[mask]));
+        }
+        NORMAL_FORMS = representatives(PitchClassCatalog::canonical);
+        PRIME_FORMS = representatives(mask -> PRIME[mask]);
+        TRANSPOSITION_CLASSES = NORMAL_FORMS.length;
+        INVERSION_CLASSES = PRIME_FORMS.length;
+
+        short[] ids = new short[PitchClassCatalog.SIZE];
+        for (int id = 0; id < NORMAL_FORMS.length; id++) {
+            ids[NORMAL_FORMS[id]] = (short) id;
+        }
+        for (int mask = 0; mask < PitchClassCatalog.SIZE; mask++) {
+            TRANSPOSITION_CLASS[mask] = ids[PitchClassCatalog.canonical(mask)];
+        }
+        for (int id = 0; id < PRIME_FORMS.length; id++) {
+            ids[PRIME_FORMS[id]] = (short) id;
+        }
+        for (int mask = 0; mask < PitchClassCatalog.SIZE; mask++) {
+            INVERSION_CLASS[mask] = ids[PRIME[mask]];
+        }
+    }
+
+    private SetClass() {}
+
+    /**
+     * Return the distinct values of [form] over every mask, ordered by
+     * cardinality and then by value.
+     */
+    private static short[] representatives(IntUnaryOperator form) {
+        boolean[] seen = new boolean[PitchClassCatalog.SIZE];
+        int count = 0;
+        for (int mask = 0; mask < PitchClassCatalog.SIZE; mask++) {
+            int representative = form.applyAsInt(mask);
+            if (!seen[representative]) {
+                seen[representative] = true;
+                count++;
+            }
+        }
+        Integer[] sorted = new Integer[count];
+        int i = 0;
+        for (int mask = 0; mask < PitchClassCatalog.SIZE; mask++) {
+            if (seen[mask]) {
+                sorted[i++] = mask;
+            }
+        }
+        Arrays.sort(sorted, (a, b) -> (Integer.bitCount(a) != Integer.bitCount(b))
+                ? Integer.bitCount(a) - Integer.bitCount(b)
+                : a - b);
+        short[] forms = new short[count];
+        for (i = 0; i < count; i++) {
+            forms[i] = (short) (int) sorted[i];
+        }
+        return forms;
+    }
+
+    /** Return the mirror image of [mask] about its root. */
+    public static int inversion(int mask) {
+        return INVERSION[mask];
+    }
+
+    /**
+     * Return the normal form of [mask]: the representative of its
+     * transposition class.
+     */
+    public static int normalForm(int mask) {
+        return PitchClassCatalog.canonical(mask);
+    }
+
+    /**
+     * Return the transposition that takes the normal form of [mask] back
+     * to [mask], i.e. mask = normalForm(mask) rotated left this many times.
+     */
+    public static int transposition(int mask) {
+        return PitchClassCatalog.canonicalRotation(mask);
+    }
+
+    /**
+     * Return the prime form of [mask]: the representative of its
+     * inversion class.
+     */
+    public static int primeForm(int mask) {
+        return PRIME[mask];
+    }
+
+    /** Return true if the prime form of [mask] is reached by inverting it. */
+    public static boolean isInvertedPrime(int mask) {
+        return PitchClassCatalog.canonical(mask) != PRIME[mask];
+    }
+
+    /** Return the id (0 to TRANSPOSITION_CLASSES - 1) of the transposition class of [mask]. */
+    public static int transpositionClass(int mask) {
+        return TRANSPOSITION_CLASS[mask];
+    }
+
+    /** Return the id (0 to INVERSION_CLASSES - 1) of the inversion class of [mask]. */
+    public static int inversionClass(int mask) {
+        return INVERSION_CLASS[mask];
+    }
+
+    /** Return the normal form of the transposition class with the given [id]. */
+    public static int normalFormOf(int id) {
+        return NORMAL_FORMS[id];
+    }
+
+    /** Return the prime form of the inversion class with the given [id]. */
+    public static int primeFormOf(int id) {
+        return PRIME_FORMS[id];
+    }
+
+    /**
+     * Return the prime form of an [interval_structure] of up to 12 bits.
+     */
+    public static IntervalBase primeForm(IntervalBase interval_structure) {
+        return new IntervalBase(primeForm(PitchClassCatalog.maskOf(interval_structure)));
+    }
+
+    /**
+     * Return the normal form of an [interval_structure] of up to 12 bits.
+     */
+    public static IntervalBase normalForm(IntervalBase interval_structure) {
+        return new IntervalBase(normalForm(PitchClassCatalog.maskOf(interval_structure)));
+    }
+
+    /*
+     * Bulk forms. Each reads [masks] and writes the result for masks[i] to
+     * out[i]; [out] may be the same array as [masks].
+     */
+
+    public static void normalForms(int[] masks, int[] out) {
+        for (int i = 0; i < masks.length; i++) {
+            out[i] = PitchClassCatalog.canonical(masks[i]);
+        }
+    }
+
+    public static void primeForms(int[] masks, int[] out) {
+        for (int i = 0; i < masks.length; i++) {
+            out[i] = PRIME[masks[i]];
+        }
+    }
+
+    public static void transpositionClasses(int[] masks, int[] out) {
+        for (int i = 0; i < masks.length; i++) {
+            out[i] = TRANSPOSITION_CLASS[masks[i]];
+        }
+    }
+
+    public static void inversionClasses(int[] masks, int[] out) {
+        for (int i = 0; i < masks.length; i++) {
+            out[i] = INVERSION_CLASS[masks[i]];
+        }
+    }
+
+    /**
+     * Return the distinct transposition classes among [masks], as normal
+     * forms in the order they first occur. Uses a fixed-size seen table,
+     * so any number of masks can be deduplicated in a single pass.
+     */
+    public static int[] distinctNormalForms(int[] masks) {
+        return distinct(masks, TRANSPOSITION_CLASS, NORMAL_FORMS);
+    }
+
+    /**
+     * Return the distinct inversion classes among [masks], as prime forms
+     * in the order they first occur.
+     */
+    public static int[] distinctPrimeForms(int[] masks) {
+        return distinct(masks, INVERSION_CLASS, PRIME_FORMS);
+    }
+
+    private static int[] distinct(int[] masks, short[] class_of, short[] forms) {
+        boolean[] seen = new boolean[forms.length];
+        int[] distinct = new int[forms.length];
+        int count = 0;
+        for (int mask : masks) {
+            int id = class_of[mask];
+            if (!seen[id]) {
+                seen[id] = true;
+                distinct[count++] = forms[id];
+            }
+        }
+        return Arrays.copyOf(distinct, count);
+    }
+}
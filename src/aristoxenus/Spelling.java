@@ -0,0 +1,394 @@
+package src.aristoxenus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import src.aristoxenus.Classes.ScaleSynopsis;
+
+/**
+ * Alphabetic spellings of interval structures, worked out arithmetically.
+ *
+ * A note is spelled from a letter (an index into Constants.NATURALS, so
+ * 0 = C) and a signed number of accidentals (positive = sharps). Giving a
+ * pitch class a letter leaves only one sensible number of accidentals:
+ * the one between MIN_ACCIDENTALS and MAX_ACCIDENTALS, which is what
+ * Nomenclature.encodeEnharmonic chooses.
+ *
+ * Heptatonic spellings are kept in tables of 4096 slots indexed by mask
+ * (see PitchClassCatalog). A table is built the first time its root is
+ * asked for and is never changed afterwards, so the spellings and their
+ * lists can be shared freely.
+ *
+ * Structures of any other size are spelled by bestSpelling, which chooses
+ * a letter for each note in one dynamic-programming pass over the notes
+ * and remembers the result for each root and mask.
+ */
+public final class Spelling {
+    /** Most flats given to a note; one more flat is spelled as sharps. */
+    public static final int MIN_ACCIDENTALS = -(Constants.TONES / 2 - 1);
+    /** Most sharps given to a note; a tritone either way is spelled as sharps. */
+    public static final int MAX_ACCIDENTALS = Constants.TONES / 2;
+
+    /** Pitch class of each letter. */
+    private static final int[] NATURAL_PITCH_CLASSES = new int[Constants.NOTES];
+
+    /** Note names, indexed by letter and accidentals - MIN_ACCIDENTALS. */
+    private static final String[][] NAMES =
+            new String[Constants.NOTES][MAX_ACCIDENTALS - MIN_ACCIDENTALS + 1];
+
+    /** Forced heptatonic spellings, keyed by letter * TONES + root. */
+    private static final Map<Integer, ScaleSynopsis[]> FORCED = new ConcurrentHashMap<>();
+
+    /** Best heptatonic spellings, keyed by root. */
+    private static final Map<Integer, ScaleSynopsis[]> BEST = new ConcurrentHashMap<>();
+
+    /**
+     * Best spellings of any structure, keyed by root * SIZE + mask. There
+     * are at most 12 * 4096 keys, so no limit is needed.
+     */
+    private static final Map<Integer, ScaleSynopsis> SPELLINGS = new ConcurrentHashMap<>();
+
+    /*
+     * The state of the spelling pass after each note: the letter of the
+     * note, counted up from the letter of the root, and which accidentals
+     * have been used so far (bit 0 = sharps, bit 1 = flats).
+     */
+    private static final int SHARPS_USED = 1;
+    private static final int FLATS_USED = 2;
+    private static final int MIXED = SHARPS_USED | FLATS_USED;
+    private static final int DIRECTIONS = MIXED + 1;
+    private static final int STATES = Constants.NOTES * DIRECTIONS;
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    /*
+     * A collision always costs more than any number of accidentals in an
+     * octave, which always cost more than mixing sharps and flats, which
+     * costs more than any number of notes named off their usual degree.
+     */
+    private static final int DEGREE_COST = 1;
+    private static final int MIXING_COST = DEGREE_COST * Constants.TONES * (Constants.NOTES - 1) + 1;
+    private static final int ACCIDENTAL_COST = 2 * MIXING_COST;
+    private static final int COLLISION_COST = ACCIDENTAL_COST * Constants.TONES * MAX_ACCIDENTALS
+            + ACCIDENTAL_COST;
+
+    /**
+     * The letter of each interval above the root in the usual spelling of
+     * chords and scales (b2, 2, b3, 3, 4, b5, 5, b6, 6, b7, 7), counted up
+     * from the letter of the root.
+     */
+    private static final int[] DEGREES = {0, 1, 1, 2, 2, 3, 4, 4, 5, 5, 6, 6};
+
+    static {
+        List<String> chromatic = Nomenclature.chromatic(Constants.SHARPS);
+        for (int letter = 0; letter < Constants.NOTES; letter++) {
+            String natural = Constants.NATURALS.get(letter);
+            NATURAL_PITCH_CLASSES[letter] = chromatic.indexOf(natural);
+            for (int accidentals = MIN_ACCIDENTALS; accidentals <= MAX_ACCIDENTALS; accidentals++) {
+                NAMES[letter][accidentals - MIN_ACCIDENTALS] = natural + (accidentals < 0
+                        ? Constants.FLAT_SYMBOL.repeat(-accidentals)
+                        : Constants.SHARP_SYMBOL.repeat(accidentals));
+            }
+        }
+    }
+
+    /** Return the pitch class of the natural [letter]. */
+    public static int naturalPitchClass(int letter) {
+        return NATURAL_PITCH_CLASSES[letter];
+    }
+
+    /**
+     * Return the number of accidentals needed to give [pitch_class] the
+     * name of [letter], between MIN_ACCIDENTALS and MAX_ACCIDENTALS.
+     */
+    public static int accidentals(int pitch_class, int letter) {
+        return Math.floorMod(pitch_class - NATURAL_PITCH_CLASSES[letter] - MIN_ACCIDENTALS,
+                Constants.TONES) + MIN_ACCIDENTALS;
+    }
+
+    /**
+     * Return the name of [pitch_class] spelled with [letter], e.g.
+     * (1, 0) -> "C#", (1, 1) -> "Db", (0, 6) -> "B#".
+     */
+    public static String spell(int pitch_class, int letter) {
+        return NAMES[letter][accidentals(pitch_class, letter) - MIN_ACCIDENTALS];
+    }
+
+    /**
+     * Return the spelling of a heptatonic structure in which each letter
+     * appears once, starting from [letter] on the [root].
+     *
+     * @param letter    The letter of the first note, 0 = C.
+     * @param root      The pitch class of the root, 0 = C.
+     * @param mask      A 12-bit mask with exactly 7 bits flipped.
+     * @return          The spelling and its accidental counts.
+     */
+    public static ScaleSynopsis forceHeptatonic(int letter, int root, int mask) {
+        checkHeptatonic(mask);
+        if (letter < 0 | letter >= Constants.NOTES) {
+            throw new IllegalArgumentException(String.format("Unknown letter %s.", letter));
+        }
+        int key = letter * Constants.TONES + Math.floorMod(root, Constants.TONES);
+        return FORCED.computeIfAbsent(key, Spelling::buildForced)[mask];
+    }
+
+    /**
+     * Return the better spelling of a heptatonic structure on [root]: the
+     * natural name of the root if it has one, otherwise whichever of its
+     * sharp and flat names gives fewer accidentals, then the one that does
+     * not mix sharps and flats, then the sharp name.
+     *
+     * @param root      The pitch class of the root, 0 = C.
+     * @param mask      A 12-bit mask with exactly 7 bits flipped.
+     * @return          The spelling and its accidental counts.
+     */
+    public static ScaleSynopsis bestHeptatonic(int root, int mask) {
+        checkHeptatonic(mask);
+        return BEST.computeIfAbsent(Math.floorMod(root, Constants.TONES), Spelling::buildBest)[mask];
+    }
+
+    /**
+     * Return the best spelling of a structure of any size on [root].
+     *
+     * Letters rise with the notes, and are chosen to give first the fewest
+     * notes that share a letter, then the fewest accidentals, then not to
+     * mix sharps and flats, then the usual degree for each interval (e.g.
+     * a minor seventh is a seventh, not an augmented sixth). The root keeps its natural name if it has one;
+     * otherwise its sharp and flat names are both tried, and ties go to
+     * the sharp name. For heptatonic structures this is bestHeptatonic.
+     *
+     * @param root      The pitch class of the root, 0 = C.
+     * @param mask      A 12-bit mask; bit i is the note i semitones above
+     *                  the root.
+     * @return          The names of the flipped bits, lowest first, and
+     *                  their accidental counts.
+     */
+    public static ScaleSynopsis bestSpelling(int root, int mask) {
+        if (mask < 0 | mask >= PitchClassCatalog.SIZE) {
+            throw new IllegalArgumentException(
+                    "Only 12-tone structures can be spelled; fold wider ones first.");
+        }
+        int key = Math.floorMod(root, Constants.TONES) * PitchClassCatalog.SIZE + mask;
+        return SPELLINGS.computeIfAbsent(key, Spelling::buildSpelling);
+    }
+
+    /**
+     * Return the best spelling of a structure of any width on [root]. Bits
+     * an octave or more apart share the spelling of their pitch class.
+     *
+     * @param root                  The pitch class of the root, 0 = C.
+     * @param interval_structure    Any structure that fits a WidePitchSet.
+     * @return                      The names of the flipped bits, lowest
+     *                              first.
+     */
+    public static List<String> bestSpelling(int root, WidePitchSet interval_structure) {
+        if (interval_structure.bitLength() <= Constants.TONES) {
+            return bestSpelling(root, (int) interval_structure.low()).scale;
+        }
+        int folded = 0;
+        for (int i = interval_structure.nextSetBit(0); i >= 0; i = interval_structure.nextSetBit(i + 1)) {
+            folded |= 1 << (i % Constants.TONES);
+        }
+        String[] names = new String[Constants.TONES];
+        List<String> scale = bestSpelling(root, folded).scale;
+        int degree = 0;
+        for (int bits = folded; bits != 0; bits &= bits - 1) {
+            names[Integer.numberOfTrailingZeros(bits)] = scale.get(degree++);
+        }
+        List<String> spelling = new ArrayList<String>(interval_structure.bitCount());
+        for (int i = interval_structure.nextSetBit(0); i >= 0; i = interval_structure.nextSetBit(i + 1)) {
+            spelling.add(names[i % Constants.TONES]);
+        }
+        return spelling;
+    }
+
+    private static void checkHeptatonic(int mask) {
+        if (mask < 0 | mask >= PitchClassCatalog.SIZE
+                || PitchClassCatalog.cardinality(mask) != Constants.NOTES) {
+            throw new IllegalArgumentException(
+                    "Operation can only be performed on heptatonic scales in 12 tone style.");
+        }
+    }
+
+    /**
+     * Spell every heptatonic mask from the letter and root packed in [key].
+     */
+    private static ScaleSynopsis[] buildForced(int key) {
+        int letter = key / Constants.TONES;
+        int root = key % Constants.TONES;
+        ScaleSynopsis[] table = new ScaleSynopsis[PitchClassCatalog.SIZE];
+        String[] scale = new String[Constants.NOTES];
+        for (int mask = 0; mask < PitchClassCatalog.SIZE; mask++) {
+            if (PitchClassCatalog.cardinality(mask) != Constants.NOTES) {
+                continue;
+            }
+            int degree = 0;
+            for (int bits = mask; bits != 0; bits &= bits - 1) {
+                scale[degree] = spell(root + Integer.numberOfTrailingZeros(bits),
+                        (letter + degree) % Constants.NOTES);
+                degree++;
+            }
+            table[mask] = new ScaleSynopsis(List.of(scale));
+        }
+        return table;
+    }
+
+    /**
+     * Choose the best spelling of every heptatonic mask on [root].
+     */
+    private static ScaleSynopsis[] buildBest(int root) {
+        int[] letters = rootLetters(root);
+        if (letters.length == 1) {
+            return FORCED.computeIfAbsent(letters[0] * Constants.TONES + root, Spelling::buildForced);
+        }
+        ScaleSynopsis[] sharp = FORCED.computeIfAbsent(
+                letters[0] * Constants.TONES + root, Spelling::buildForced);
+        ScaleSynopsis[] flat = FORCED.computeIfAbsent(
+                letters[1] * Constants.TONES + root, Spelling::buildForced);
+        ScaleSynopsis[] table = new ScaleSynopsis[PitchClassCatalog.SIZE];
+        for (int mask = 0; mask < PitchClassCatalog.SIZE; mask++) {
+            if (sharp[mask] != null) {
+                table[mask] = better(sharp[mask], flat[mask]);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Return whichever of a [sharp_scale] and a [flat_scale] has fewer
+     * accidentals, then the one that is not mixed, then the sharp one.
+     */
+    private static ScaleSynopsis better(ScaleSynopsis sharp_scale, ScaleSynopsis flat_scale) {
+        int s_total = sharp_scale.sharps + sharp_scale.flats;
+        int f_total = flat_scale.sharps + flat_scale.flats;
+        if (s_total != f_total) {
+            return s_total < f_total ? sharp_scale : flat_scale;
+        }
+        if (sharp_scale.mixed & !flat_scale.mixed) {
+            return flat_scale;
+        }
+        return sharp_scale;
+    }
+
+    /**
+     * Spell the root and mask packed in [key], trying each letter the root
+     * may be named with.
+     */
+    private static ScaleSynopsis buildSpelling(int key) {
+        int root = key / PitchClassCatalog.SIZE;
+        int mask = key % PitchClassCatalog.SIZE;
+        String[] best = null;
+        int best_cost = UNREACHABLE;
+        for (int letter : rootLetters(root)) {
+            String[] names = new String[Integer.bitCount(mask)];
+            int cost = optimize(letter, root, mask, names);
+            if (cost < best_cost) {
+                best = names;
+                best_cost = cost;
+            }
+        }
+        return new ScaleSynopsis(List.of(best));
+    }
+
+    /**
+     * Fill [names] with the cheapest spelling of [mask] on a [root] named
+     * with [letter], and return its cost.
+     *
+     * Each note either takes the letter of the note below it, which is a
+     * collision, or a higher one, so the cheapest spelling up to a note
+     * depends only on that note's letter and the accidentals used so far.
+     * The pass keeps the cheapest cost of each such state, note by note.
+     */
+    private static int optimize(int letter, int root, int mask, String[] names) {
+        int notes = names.length;
+        if (notes == 0) {
+            return 0;
+        }
+        int[] intervals = new int[notes];
+        int degree = 0;
+        for (int bits = mask; bits != 0; bits &= bits - 1) {
+            intervals[degree++] = Integer.numberOfTrailingZeros(bits);
+        }
+        int[][] cost = new int[notes][STATES];
+        int[][] previous = new int[notes][STATES];
+
+        for (int i = 0; i < notes; i++) {
+            Arrays.fill(cost[i], UNREACHABLE);
+            // The root keeps its letter; other first notes may take any.
+            int highest = (i == 0 & (mask & 1) != 0) ? 0 : Constants.NOTES - 1;
+            for (int offset = 0; offset <= highest; offset++) {
+                int accidentals = accidentals(root + intervals[i], (letter + offset) % Constants.NOTES);
+                int direction = accidentals > 0 ? SHARPS_USED : accidentals < 0 ? FLATS_USED : 0;
+                int step = ACCIDENTAL_COST * Math.abs(accidentals)
+                        + DEGREE_COST * Math.abs(offset - DEGREES[intervals[i]]);
+                if (i == 0) {
+                    relax(cost[0], previous[0], offset * DIRECTIONS + direction, step, -1);
+                    continue;
+                }
+                for (int state = 0; state < STATES; state++) {
+                    int below = state / DIRECTIONS;
+                    if (cost[i - 1][state] == UNREACHABLE | below > offset) {
+                        continue;
+                    }
+                    relax(cost[i], previous[i],
+                            offset * DIRECTIONS + (state % DIRECTIONS | direction),
+                            cost[i - 1][state] + step + (below == offset ? COLLISION_COST : 0),
+                            state);
+                }
+            }
+        }
+
+        // Mixing is only known at the end.
+        int best = -1;
+        int best_cost = UNREACHABLE;
+        for (int state = 0; state < STATES; state++) {
+            if (cost[notes - 1][state] == UNREACHABLE) {
+                continue;
+            }
+            int total = cost[notes - 1][state] + (state % DIRECTIONS == MIXED ? MIXING_COST : 0);
+            if (total < best_cost) {
+                best = state;
+                best_cost = total;
+            }
+        }
+        for (int i = notes - 1; i >= 0; i--) {
+            names[i] = spell(root + intervals[i], (letter + best / DIRECTIONS) % Constants.NOTES);
+            best = previous[i][best];
+        }
+        return best_cost;
+    }
+
+    /**
+     * Lower [cost] of [state] to [candidate], reached from [from], if that
+     * is cheaper. Ties keep the state reached first, i.e. the lower letter.
+     */
+    private static void relax(int[] cost, int[] previous, int state, int candidate, int from) {
+        if (candidate < cost[state]) {
+            cost[state] = candidate;
+            previous[state] = from;
+        }
+    }
+
+    /**
+     * Return the letters the [root] may be named with: its natural, if it
+     * has one, otherwise the letters of its sharp and flat names.
+     */
+    private static int[] rootLetters(int root) {
+        String binomial = Nomenclature.chromatic().get(root);
+        int natural = Constants.NATURALS.indexOf(binomial);
+        if (natural >= 0) {
+            return new int[] {natural};
+        }
+        int index = Constants.BINOMIALS.indexOf(binomial);
+        return new int[] {
+                letterOf(Constants.SHARPS.get(index)),
+                letterOf(Constants.FLATS.get(index))};
+    }
+
+    /** Return the letter of a [note_name], 0 = C. */
+    private static int letterOf(String note_name) {
+        return Constants.NATURALS.indexOf(note_name.substring(0, 1));
+    }
+}
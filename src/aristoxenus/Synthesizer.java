@@ -0,0 +1,259 @@
+package src.aristoxenus;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import src.aristoxenus.Classes.TimedStructure;
+
+/**
+ * Render interval structures as sound.
+ *
+ * Each flipped bit of a structure, counted up from a root pitch number
+ * (see ScientificPitch), becomes a voice at its equal tempered frequency.
+ * A voice reads a single-cycle wavetable through a 32-bit phase
+ * accumulator, which wraps around the table by overflowing, and the
+ * voices are mixed into blocks of mono float samples between -1 and 1.
+ * The blocks are reused, so rendering allocates nothing per sample or
+ * per block; they go to a Sink, e.g. a WaveFile.
+ *
+ * A synthesizer is not thread-safe. Use one per thread.
+ */
+public final class Synthesizer {
+    /** Samples per second when none is given. */
+    public static final int DEFAULT_SAMPLE_RATE = 44100;
+
+    /** Number of samples in each block handed to a Sink. */
+    public static final int BLOCK_SIZE = 1024;
+
+    /** Peak level of the mixed voices. */
+    public static final float DEFAULT_AMPLITUDE = 0.8f;
+
+    /** Seconds taken to fade each structure in, so it does not click. */
+    public static final double ATTACK = 0.005;
+
+    /** Seconds taken to fade each structure out. */
+    public static final double RELEASE = 0.05;
+
+    /** log2 of the number of points in a wavetable. */
+    public static final int TABLE_BITS = 12;
+    private static final int TABLE_SIZE = 1 << TABLE_BITS;
+    private static final int FRACTION_BITS = Integer.SIZE - TABLE_BITS;
+    private static final int FRACTION_MASK = (1 << FRACTION_BITS) - 1;
+    private static final float FRACTION_SCALE = 1f / (1 << FRACTION_BITS);
+    private static final double PHASE_SCALE = 0x1p32;
+
+    private static final float[] SINE = harmonics(1);
+
+    /**
+     * Receives the rendered samples, one block at a time. The block is
+     * reused after the call returns.
+     */
+    public interface Sink {
+        void write(float[] samples, int length) throws IOException;
+    }
+
+    private final int sample_rate;
+    private final float[] wavetable;
+    private final float amplitude;
+    private final float[] block = new float[BLOCK_SIZE];
+    private final int[] phases = new int[WidePitchSet.CAPACITY];
+    private final int[] increments = new int[WidePitchSet.CAPACITY];
+    private int voices = 0;
+
+    /** Create a sine synthesizer at the default sample rate. */
+    public Synthesizer() {
+        this(DEFAULT_SAMPLE_RATE);
+    }
+
+    /** Create a sine synthesizer at the given [sample_rate]. */
+    public Synthesizer(int sample_rate) {
+        this(sample_rate, SINE, DEFAULT_AMPLITUDE);
+    }
+
+    /**
+     * Create a synthesizer.
+     *
+     * @param sample_rate   Samples per second.
+     * @param wavetable     One cycle of the waveform, as returned by
+     *                      harmonics().
+     * @param amplitude     Peak level of the mixed voices, at most 1.
+     */
+    public Synthesizer(int sample_rate, float[] wavetable, float amplitude) {
+        if (sample_rate <= 0) {
+            throw new IllegalArgumentException(
+                    String.format("Sample rate %s is not positive.", sample_rate));
+        }
+        if (wavetable.length != TABLE_SIZE + 1) {
+            throw new IllegalArgumentException(String.format(
+                    "Wavetable must have %s points plus a guard point.", TABLE_SIZE));
+        }
+        if (!(amplitude > 0 & amplitude <= 1)) {
+            throw new IllegalArgumentException(
+                    String.format("Amplitude %s is not between 0 and 1.", amplitude));
+        }
+        this.sample_rate = sample_rate;
+        this.wavetable = wavetable;
+        this.amplitude = amplitude;
+    }
+
+    /**
+     * Return a wavetable with the given [amplitudes] of the harmonics,
+     * starting from the fundamental, scaled so that its peak is 1.
+     *
+     * E.g. (1) is a sine, (1, 0, 1/3., 0, 1/5.) a rounded square wave.
+     */
+    public static float[] harmonics(double... amplitudes) {
+        double[] wave = new double[TABLE_SIZE];
+        double peak = 0;
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            double angle = 2 * Math.PI * i / TABLE_SIZE;
+            for (int h = 0; h < amplitudes.length; h++) {
+                wave[i] += amplitudes[h] * Math.sin((h + 1) * angle);
+            }
+            peak = Math.max(peak, Math.abs(wave[i]));
+        }
+        if (peak == 0) {
+            throw new IllegalArgumentException("Wavetable is silent.");
+        }
+        // The guard point repeats the first, so reads can interpolate
+        // across the end of the cycle.
+        float[] table = new float[TABLE_SIZE + 1];
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            table[i] = (float) (wave[i] / peak);
+        }
+        table[TABLE_SIZE] = table[0];
+        return table;
+    }
+
+    /** Return the number of samples per second. */
+    public int sampleRate() {
+        return sample_rate;
+    }
+
+    /** Return the number of samples in [seconds] of sound. */
+    public long samples(double seconds) {
+        return Math.round(seconds * sample_rate);
+    }
+
+    /**
+     * Render an [interval_structure] on a [root] pitch number for a number
+     * of [seconds] into the [sink].
+     *
+     * @throws IndexOutOfBoundsException If a note is outside the range of
+     *                                   Temperament.
+     */
+    public void render(int root, WidePitchSet interval_structure, double seconds, Sink sink)
+            throws IOException {
+        tune(root, interval_structure);
+        long total = samples(seconds);
+        long attack = Math.min(samples(ATTACK), total / 2);
+        long release = Math.min(samples(RELEASE), total - attack);
+        for (long done = 0; done < total; done += BLOCK_SIZE) {
+            int length = (int) Math.min(BLOCK_SIZE, total - done);
+            mix(length);
+            shape(done, length, total, attack, release);
+            sink.write(block, length);
+        }
+    }
+
+    /** IntervalBase form of render(int, WidePitchSet, double, Sink). */
+    public void render(int root, IntervalBase interval_structure, double seconds, Sink sink)
+            throws IOException {
+        render(root, interval_structure.toWidePitchSet(), seconds, sink);
+    }
+
+    /**
+     * Render a [sequence] of structures one after the other into the
+     * [sink].
+     */
+    public void render(List<TimedStructure> sequence, Sink sink) throws IOException {
+        for (TimedStructure step : sequence) {
+            render(step.root, step.pitches, step.seconds, sink);
+        }
+    }
+
+    /**
+     * Render an [interval_structure] on a [root] pitch number for a number
+     * of [seconds] into a new array.
+     */
+    public float[] renderClip(int root, WidePitchSet interval_structure, double seconds) {
+        long total = samples(seconds);
+        if (total > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    String.format("%s seconds is too long for one array.", seconds));
+        }
+        float[] clip = new float[(int) total];
+        int[] position = {0};
+        try {
+            render(root, interval_structure, seconds, (samples, length) -> {
+                System.arraycopy(samples, 0, clip, position[0], length);
+                position[0] += length;
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException("Rendering into memory failed.", e);
+        }
+        return clip;
+    }
+
+    /**
+     * Start a voice for each flipped bit of [interval_structure] above
+     * [root], each at the start of its cycle.
+     */
+    private void tune(int root, WidePitchSet interval_structure) {
+        voices = 0;
+        for (int i = interval_structure.nextSetBit(0); i >= 0; i = interval_structure.nextSetBit(i + 1)) {
+            double frequency = Temperament.frequency(root + i);
+            phases[voices] = 0;
+            // The increment is a fraction of a cycle in 32 bits; like the
+            // phase it is unsigned, so only the low 32 bits matter.
+            increments[voices] = (int) (long) Math.rint(frequency / sample_rate * PHASE_SCALE);
+            voices++;
+        }
+    }
+
+    /**
+     * Fill the first [length] samples of the block with the sum of the
+     * voices, scaled so that they cannot exceed the amplitude.
+     */
+    private void mix(int length) {
+        float[] out = block;
+        float[] table = wavetable;
+        Arrays.fill(out, 0, length, 0f);
+        for (int v = 0; v < voices; v++) {
+            int phase = phases[v];
+            int increment = increments[v];
+            for (int s = 0; s < length; s++) {
+                int index = phase >>> FRACTION_BITS;
+                float fraction = (phase & FRACTION_MASK) * FRACTION_SCALE;
+                float a = table[index];
+                out[s] += a + (table[index + 1] - a) * fraction;
+                phase += increment;
+            }
+            phases[v] = phase;
+        }
+        float gain = voices == 0 ? 0 : amplitude / voices;
+        for (int s = 0; s < length; s++) {
+            out[s] *= gain;
+        }
+    }
+
+    /**
+     * Apply the fade in and fade out to the first [length] samples of the
+     * block, which start [done] samples into a sound of [total] samples.
+     */
+    private void shape(long done, int length, long total, long attack, long release) {
+        long fade_out = total - release;
+        if (done >= attack && done + length <= fade_out) {
+            return;
+        }
+        for (int s = 0; s < length; s++) {
+            long t = done + s;
+            if (t < attack) {
+                block[s] *= (float) t / attack;
+            } else if (t >= fade_out) {
+                block[s] *= (float) (total - t) / release;
+            }
+        }
+    }
+}
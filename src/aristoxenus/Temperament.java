@@ -1,54 +1,145 @@
 package src.aristoxenus;
 
+import java.util.Arrays;
 import java.util.List;
-import java.util.ArrayList;
 
 /**
  * This module supplies the frequency data used to render alphabetic notation
  * as actual sounds.
  */
 public class Temperament {
-    
+
+    /**
+     * Equal tempered frequencies indexed by absolute pitch number (see
+     * ScientificPitch; C0 = 0).
+     */
+    private static final int CENTRE = ScientificPitch.pitchOf(Constants.CENTRAL_REFERENCE_NAME);
+    private static final double[] EQUAL_TEMPERAMENT = buildEqualTemperament();
+    private static final List<Double> EQUAL_TEMPERAMENT_LIST = Arrays
+            .stream(EQUAL_TEMPERAMENT)
+            .boxed()
+            .toList();
+
 
     /**
      * Generate 12-tone equal tempered tuning.
      * 
+     * The tuning is computed once; the returned list is shared and cannot
+     * be modified.
+     * 
      * @return A list of frequencies corresponding to the range of the 
      * scientific chromatic scales generated by the Nomenclature module.
      */
     public static List<Double> equalTemperament(){
-        String centre_name = Constants.CENTRAL_REFERENCE_NAME;
+        return EQUAL_TEMPERAMENT_LIST;
+    }
+
+
+    /**
+     * Return a copy of the 12-tone equal tempered tuning as a primitive
+     * table indexed by absolute pitch number.
+     */
+    public static double[] equalTemperamentTable(){
+        return EQUAL_TEMPERAMENT.clone();
+    }
+
+
+    /**
+     * Return the equal tempered frequency of the given absolute [pitch]
+     * number (see ScientificPitch).
+     * 
+     * @throws IndexOutOfBoundsException If the pitch is outside the range.
+     */
+    public static double frequency(int pitch){
+        if (pitch < 0 | pitch >= EQUAL_TEMPERAMENT.length){
+            throw new IndexOutOfBoundsException(
+                    String.format("Pitch %s is out of the legal range.", pitch));
+        }
+        return EQUAL_TEMPERAMENT[pitch];
+    }
+
+
+    /**
+     * Return the absolute pitch number nearest to the given [frequency] in
+     * 12-tone equal temperament.
+     * 
+     * The pitch is found in closed form from the logarithm of the ratio to
+     * the central reference frequency, so no table is searched.
+     * 
+     * @return The nearest pitch number, or -1 if the frequency is not
+     *         positive or lies more than half a semitone outside the range.
+     */
+    public static int nearestPitch(double frequency){
+        if (!(frequency > 0)){
+            return -1;
+        }
+        long pitch = Math.round(CENTRE + semitonesFromCentre(frequency));
+        if (pitch < 0 | pitch >= EQUAL_TEMPERAMENT.length){
+            return -1;
+        }
+        return (int) pitch;
+    }
+
+
+    /**
+     * Return the deviation in cents of a [frequency] from the exact (not
+     * rounded) equal tempered frequency of the given [pitch].
+     */
+    public static double centsDeviation(double frequency, int pitch){
+        return 100 * (CENTRE + semitonesFromCentre(frequency) - pitch);
+    }
+
+
+    /**
+     * Resolve a batch of [frequencies] to their nearest pitch numbers, e.g.
+     * the output of a pitch tracker, without allocating.
+     * 
+     * @param frequencies   The frequencies to resolve.
+     * @param pitches       Receives the nearest pitch number for each
+     *                      frequency, or -1 (see nearestPitch).
+     * @param cents         Receives the deviation in cents for each
+     *                      frequency (0 where the pitch is -1). May be
+     *                      null if the deviations are not needed.
+     */
+    public static void nearestPitches(double[] frequencies, int[] pitches, double[] cents){
+        for (int i = 0; i < frequencies.length; i++){
+            int pitch = nearestPitch(frequencies[i]);
+            pitches[i] = pitch;
+            if (cents != null){
+                cents[i] = (pitch < 0) ? 0 : centsDeviation(frequencies[i], pitch);
+            }
+        }
+    }
+
+
+    /**
+     * Return the signed distance in semitones from the central reference
+     * frequency to the given [frequency].
+     */
+    private static double semitonesFromCentre(double frequency){
+        return Constants.TONES * Math.log(frequency / Constants.CENTRAL_REFERENCE_FREQUENCY)
+                / Math.log(Constants.OCTAVE_EQUIVALENCE_FACTOR);
+    }
+
+
+    /**
+     * Build the table behind equalTemperament().
+     */
+    private static double[] buildEqualTemperament(){
         int centre_freq = Constants.CENTRAL_REFERENCE_FREQUENCY;
         int limit = Constants.FREQUENCY_DECIMAL_LIMITER;
         int equivalence = Constants.OCTAVE_EQUIVALENCE_FACTOR;
-        List<Double> frequencies = new ArrayList<Double>();
+        double[] frequencies = new double[ScientificPitch.SIZE];
         double frequency;
-        double direction;
-        double semitones;
-
-        List<String> full_range = Nomenclature.scientificRange();
-        for (String note:full_range){
-            if (full_range.indexOf(note) < full_range.indexOf(centre_name)){
-                direction = Constants.FLAT_VALUE;
-                semitones = full_range.indexOf(centre_name) - full_range.indexOf(note);
-            }
-            else{
-                direction = Constants.SHARP_VALUE;
-                semitones = full_range.indexOf(note) - full_range.indexOf(centre_name);
-            }
+        double scale = Math.pow(10, limit);
 
+        for (int pitch = 0; pitch < frequencies.length; pitch++){
             /* 12 Tone Equal Temperament: 
             next = prev * 2 ** (+/-) 1/12 (+=higher, -=lower) */
-            frequency = centre_freq * Math.pow(equivalence, (direction * (semitones / Constants.TONES)));
-            frequency = Math.round(frequency*Math.pow(10, limit)) / Math.pow(10, limit);
-            if (! frequencies.contains(frequency)){
-                frequencies.add(frequency);
-            }
+            frequency = centre_freq * Math.pow(equivalence, (pitch - CENTRE) / (double) Constants.TONES);
+            frequencies[pitch] = Math.round(frequency * scale) / scale;
         }
         return frequencies;
     }
 
-
-
-
 }
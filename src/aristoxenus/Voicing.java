@@ -0,0 +1,323 @@
+package src.aristoxenus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import src.aristoxenus.Constants.ChordVoicingNames;
+
+/**
+ * Place the notes of an interval structure across the scientific range.
+ *
+ * A voicing is a WidePitchSet of absolute pitch numbers (see
+ * ScientificPitch): bit p is flipped if pitch p sounds. Structures are
+ * folded to their pitch classes first, so a ninth chord and an add2 chord
+ * have the same voicings.
+ *
+ * The named voicings (Constants.ChordVoicingNames) all start from the
+ * close voicing, where every note is less than an octave above the bass:
+ *
+ *     close        C4 E4 G4 B4
+ *     drop_2       G3 C4 E4 B4     (second note from the top down an octave)
+ *     drop_3       E3 C4 G4 B4     (third note from the top)
+ *     drop_2_and_4 C3 G3 E4 B4     (second and fourth)
+ *     spread       C4 E5 G5 B5     (all but the bass up an octave)
+ *
+ * voicings() enumerates every voicing with one note per pitch class inside
+ * a given span, and allVoicings() does so for every root in parallel.
+ */
+public final class Voicing {
+
+    /** Roots per task when enumerating in parallel. */
+    private static final int ROOTS_PER_TASK = 4;
+
+    /** Every pitch of each pitch class, as the two words of a WidePitchSet. */
+    private static final long[] ROW_LOW = new long[Constants.TONES];
+    private static final long[] ROW_HIGH = new long[Constants.TONES];
+
+    static {
+        for (int pitch = 0; pitch < ScientificPitch.SIZE; pitch++) {
+            int pitch_class = pitch % Constants.TONES;
+            if (pitch < Long.SIZE) {
+                ROW_LOW[pitch_class] |= 1L << pitch;
+            } else {
+                ROW_HIGH[pitch_class] |= 1L << (pitch - Long.SIZE);
+            }
+        }
+    }
+
+    /**
+     * Receives each voicing found, as the two words of a WidePitchSet.
+     */
+    public interface Visitor {
+        void visit(long low, long high);
+    }
+
+    private Voicing() {
+    }
+
+    /**
+     * Return the named voicing of an [interval_structure] on a [root]
+     * pitch number.
+     *
+     * @param voicing_name  One of Constants.ChordVoicingNames.
+     * @param inversion     Which note of the close voicing is the bass,
+     *                      0 for the lowest pitch class of the structure.
+     * @throws IndexOutOfBoundsException If a note is outside the range.
+     */
+    public static WidePitchSet voice(String voicing_name, int root,
+            WidePitchSet interval_structure, int inversion) {
+        WidePitchSet close = close(root, interval_structure, inversion);
+        switch (voicing_name) {
+            case ChordVoicingNames.CLOSE:
+                return close;
+            case ChordVoicingNames.SPREAD:
+                return spread(close);
+            case ChordVoicingNames.DROP_2:
+                return drop(close, 2);
+            case ChordVoicingNames.DROP_3:
+                return drop(close, 3);
+            case ChordVoicingNames.DROP_2_AND_4:
+                return drop(close, 2, 4);
+            default:
+                throw new IllegalArgumentException(
+                        String.format("Unknown voicing: %s", voicing_name));
+        }
+    }
+
+    /** IntervalBase form of voice(String, int, WidePitchSet, int). */
+    public static WidePitchSet voice(String voicing_name, int root,
+            IntervalBase interval_structure, int inversion) {
+        return voice(voicing_name, root, interval_structure.toWidePitchSet(), inversion);
+    }
+
+    /**
+     * Return the close voicing of an [interval_structure] on a [root] pitch
+     * number, with the given [inversion] in the bass.
+     *
+     * E.g. (48, major triad, 1) -> E4 G4 C5
+     */
+    public static WidePitchSet close(int root, WidePitchSet interval_structure, int inversion) {
+        checkRoot(root);
+        int folded = fold(interval_structure);
+        int voices = Integer.bitCount(folded);
+        if (inversion < 0 || inversion >= voices) {
+            throw new IllegalArgumentException(String.format(
+                    "A structure of %s pitch classes has no inversion %s.", voices, inversion));
+        }
+        int rest = folded;
+        for (int i = 0; i < inversion; i++) {
+            rest &= rest - 1;
+        }
+        int bass = Integer.numberOfTrailingZeros(rest);
+        long relative = PitchSet.rotateRight(folded, bass, Constants.TONES);
+        return checked(WidePitchSet.valueOf(relative).shiftLeft(root + bass));
+    }
+
+    /**
+     * Return the [voicing] with all but its bass raised an octave.
+     */
+    public static WidePitchSet spread(WidePitchSet voicing) {
+        int bass = voicing.lowestSetBit();
+        if (bass < 0) {
+            return voicing;
+        }
+        WidePitchSet upper = voicing.clearBit(bass);
+        if (upper.bitLength() + Constants.TONES > ScientificPitch.SIZE) {
+            throw new IndexOutOfBoundsException("Voicing is out of the legal range.");
+        }
+        return upper.shiftLeft(Constants.TONES).setBit(bass);
+    }
+
+    /**
+     * Return the [voicing] with the given [voices], counted from the top
+     * (1 is the highest note), lowered an octave.
+     */
+    public static WidePitchSet drop(WidePitchSet voicing, int... voices) {
+        int[] pitches = new int[voicing.bitCount()];
+        int count = 0;
+        for (int i = voicing.nextSetBit(0); i >= 0; i = voicing.nextSetBit(i + 1)) {
+            pitches[count++] = i;
+        }
+        WidePitchSet dropped = voicing;
+        for (int voice : voices) {
+            if (voice < 1 || voice > count) {
+                throw new IllegalArgumentException(String.format(
+                        "A voicing of %s notes has no voice %s.", count, voice));
+            }
+            int pitch = pitches[count - voice];
+            if (pitch < Constants.TONES) {
+                throw new IndexOutOfBoundsException("Voicing is out of the legal range.");
+            }
+            dropped = dropped.clearBit(pitch).setBit(pitch - Constants.TONES);
+        }
+        return dropped;
+    }
+
+    /**
+     * Return every voicing of an [interval_structure] on a [root] pitch
+     * number (see forEachVoicing).
+     */
+    public static List<WidePitchSet> voicings(int root, WidePitchSet interval_structure, int span) {
+        List<WidePitchSet> voicings = new ArrayList<WidePitchSet>();
+        forEachVoicing(root, interval_structure, span,
+                (low, high) -> voicings.add(WidePitchSet.valueOf(low, high)));
+        return voicings;
+    }
+
+    /**
+     * Return the number of voicings of an [interval_structure] on a [root]
+     * pitch number (see forEachVoicing).
+     */
+    public static long count(int root, WidePitchSet interval_structure, int span) {
+        long[] count = {0};
+        forEachVoicing(root, interval_structure, span, (low, high) -> count[0]++);
+        return count[0];
+    }
+
+    /**
+     * Visit every voicing of an [interval_structure] on a [root] pitch
+     * number that has one note for each pitch class of the structure, its
+     * bass in the octave starting at the root, and no more than [span]
+     * semitones from its bass to its top, inside the scientific range.
+     *
+     * Voicings are visited in order of their bass, and nothing is
+     * allocated per voicing.
+     */
+    public static void forEachVoicing(int root, WidePitchSet interval_structure, int span,
+            Visitor visitor) {
+        checkRoot(root);
+        if (span < 0) {
+            throw new IllegalArgumentException(String.format("Span %s is negative.", span));
+        }
+        int classes = (int) PitchSet.rotateLeft(fold(interval_structure),
+                root % Constants.TONES, Constants.TONES);
+        int[] upper = new int[Constants.TONES];
+        int last = Math.min(root + Constants.TONES, ScientificPitch.SIZE);
+        for (int bass = root; bass < last; bass++) {
+            int bass_class = bass % Constants.TONES;
+            if ((classes & (1 << bass_class)) == 0) {
+                continue;
+            }
+            int count = 0;
+            for (int rest = classes & ~(1 << bass_class); rest != 0; rest &= rest - 1) {
+                upper[count++] = Integer.numberOfTrailingZeros(rest);
+            }
+            int top = Math.min(bass + span, ScientificPitch.SIZE - 1);
+            WidePitchSet window = WidePitchSet.mask(top + 1).andNot(WidePitchSet.mask(bass + 1));
+            WidePitchSet start = WidePitchSet.EMPTY.setBit(bass);
+            visit(upper, count, 0, start.low(), start.high(), window.low(), window.high(), visitor);
+        }
+    }
+
+    /**
+     * Return every voicing of an [interval_structure] on each root pitch
+     * number of the scientific range, in parallel on the common pool.
+     *
+     * @see #allVoicings(WidePitchSet, int, ForkJoinPool)
+     */
+    public static WidePitchSet[][] allVoicings(WidePitchSet interval_structure, int span) {
+        return allVoicings(interval_structure, span, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Return every voicing of an [interval_structure] on each root pitch
+     * number of the scientific range (see forEachVoicing), indexed by
+     * root.
+     *
+     * @param pool The pool to split the roots across.
+     */
+    public static WidePitchSet[][] allVoicings(WidePitchSet interval_structure, int span,
+            ForkJoinPool pool) {
+        if (span < 0) {
+            throw new IllegalArgumentException(String.format("Span %s is negative.", span));
+        }
+        WidePitchSet[][] voicings = new WidePitchSet[ScientificPitch.SIZE][];
+        pool.invoke(new VoicingTask(interval_structure, span, voicings, 0, voicings.length));
+        return voicings;
+    }
+
+    /**
+     * Place each of the [upper] pitch classes from [index] on, in every
+     * pitch of the window, on top of the notes chosen so far.
+     */
+    private static void visit(int[] upper, int count, int index, long low, long high,
+            long window_low, long window_high, Visitor visitor) {
+        if (index == count) {
+            visitor.visit(low, high);
+            return;
+        }
+        int pitch_class = upper[index];
+        for (long bits = ROW_LOW[pitch_class] & window_low; bits != 0; bits &= bits - 1) {
+            visit(upper, count, index + 1, low | Long.lowestOneBit(bits), high,
+                    window_low, window_high, visitor);
+        }
+        for (long bits = ROW_HIGH[pitch_class] & window_high; bits != 0; bits &= bits - 1) {
+            visit(upper, count, index + 1, low, high | Long.lowestOneBit(bits),
+                    window_low, window_high, visitor);
+        }
+    }
+
+    /** Return the pitch classes of an [interval_structure], 0 = its root. */
+    private static int fold(WidePitchSet interval_structure) {
+        int folded = 0;
+        for (int i = interval_structure.nextSetBit(0); i >= 0; i = interval_structure.nextSetBit(i + 1)) {
+            folded |= 1 << (i % Constants.TONES);
+        }
+        if (folded == 0) {
+            throw new IllegalArgumentException("Cannot voice an empty structure.");
+        }
+        return folded;
+    }
+
+    private static void checkRoot(int root) {
+        if (!ScientificPitch.isInRange(root)) {
+            throw new IndexOutOfBoundsException(
+                    String.format("Root %s is out of the legal range.", root));
+        }
+    }
+
+    private static WidePitchSet checked(WidePitchSet voicing) {
+        if (voicing.bitLength() > ScientificPitch.SIZE) {
+            throw new IndexOutOfBoundsException("Voicing is out of the legal range.");
+        }
+        return voicing;
+    }
+
+    /**
+     * Enumerate the voicings of roots [from] to [to], splitting the range
+     * in half until it is small enough.
+     */
+    @SuppressWarnings("serial")
+    private static final class VoicingTask extends RecursiveAction {
+        private final WidePitchSet interval_structure;
+        private final int span;
+        private final WidePitchSet[][] voicings;
+        private final int from;
+        private final int to;
+
+        private VoicingTask(WidePitchSet interval_structure, int span, WidePitchSet[][] voicings,
+                int from, int to) {
+            this.interval_structure = interval_structure;
+            this.span = span;
+            this.voicings = voicings;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > ROOTS_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new VoicingTask(interval_structure, span, voicings, from, middle),
+                        new VoicingTask(interval_structure, span, voicings, middle, to));
+                return;
+            }
+            for (int root = from; root < to; root++) {
+                voicings[root] = voicings(root, interval_structure, span)
+                        .toArray(new WidePitchSet[0]);
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package src.aristoxenus;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A mono PCM WAV file being written, 16 or 24 bits per sample.
+ *
+ * Samples arrive as floats between -1 and 1 (louder samples are clipped)
+ * and are converted into a reused direct buffer that is written straight
+ * to a FileChannel. The sizes in the header are filled in on close(),
+ * which also writes the pad byte RIFF requires after an odd number of
+ * bytes of samples (24-bit files only).
+ *
+ * A WaveFile is a Synthesizer.Sink, so a synthesizer can render into it:
+ *
+ *     try (WaveFile wave = WaveFile.create(path, synth.sampleRate(), 16)) {
+ *         synth.render(root, structure, 2.0, wave);
+ *     }
+ */
+public final class WaveFile implements Synthesizer.Sink, Closeable {
+    /** Number of bytes before the first sample. */
+    public static final int HEADER_SIZE = 44;
+
+    private static final int FORMAT_PCM = 1;
+    private static final int CHANNELS = 1;
+    private static final long MAX_DATA_SIZE = 0xFFFFFFFFL - HEADER_SIZE;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final int sample_rate;
+    private final int bytes_per_sample;
+    private final float scale;
+    private long data_size = 0;
+
+    private WaveFile(FileChannel channel, int sample_rate, int bits_per_sample) {
+        this.channel = channel;
+        this.sample_rate = sample_rate;
+        this.bytes_per_sample = bits_per_sample / Byte.SIZE;
+        this.scale = scale(bits_per_sample);
+        this.buffer = ByteBuffer
+                .allocateDirect(Synthesizer.BLOCK_SIZE * bytes_per_sample)
+                .order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Create (or replace) a WAV file at [path] and write its header.
+     *
+     * @param sample_rate       Samples per second.
+     * @param bits_per_sample   16 or 24.
+     */
+    public static WaveFile create(Path path, int sample_rate, int bits_per_sample)
+            throws IOException {
+        check(sample_rate, bits_per_sample);
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        WaveFile wave = new WaveFile(channel, sample_rate, bits_per_sample);
+        try {
+            wave.writeHeader();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return wave;
+    }
+
+    /**
+     * Write a whole clip of [samples] to a new WAV file at [path].
+     */
+    public static void write(Path path, float[] samples, int sample_rate, int bits_per_sample)
+            throws IOException {
+        try (WaveFile wave = create(path, sample_rate, bits_per_sample)) {
+            wave.write(samples, samples.length);
+        }
+    }
+
+    /** Return the number of samples written so far. */
+    public long samples() {
+        return data_size / bytes_per_sample;
+    }
+
+    /**
+     * Append the first [length] of the given [samples].
+     */
+    @Override
+    public void write(float[] samples, int length) throws IOException {
+        if (data_size + (long) length * bytes_per_sample > MAX_DATA_SIZE) {
+            throw new IOException("A WAV file cannot hold more than 4 GiB of samples.");
+        }
+        int per_buffer = buffer.capacity() / bytes_per_sample;
+        for (int start = 0; start < length; start += per_buffer) {
+            int end = Math.min(length, start + per_buffer);
+            buffer.clear();
+            putSamples(buffer, samples, start, end, bytes_per_sample, scale);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        data_size += (long) length * bytes_per_sample;
+    }
+
+    /**
+     * Fill in the sizes in the header and close the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            writeHeader();
+            if ((data_size & 1) != 0) {
+                ByteBuffer pad = ByteBuffer.allocate(1);
+                while (pad.hasRemaining()) {
+                    channel.write(pad);
+                }
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Write the header for the samples written so far at the start of the
+     * file, leaving the channel positioned after the last sample.
+     */
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        putHeader(header, sample_rate, bytes_per_sample * Byte.SIZE, data_size);
+        header.flip();
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += channel.write(header, position);
+        }
+        channel.position(HEADER_SIZE + data_size);
+    }
+
+    /**
+     * Check that a WAV file can have the given [sample_rate] and
+     * [bits_per_sample].
+     */
+    static void check(int sample_rate, int bits_per_sample) {
+        if (bits_per_sample != 16 & bits_per_sample != 24) {
+            throw new IllegalArgumentException(
+                    String.format("Cannot write %s-bit samples.", bits_per_sample));
+        }
+        if (sample_rate <= 0) {
+            throw new IllegalArgumentException(
+                    String.format("Sample rate %s is not positive.", sample_rate));
+        }
+    }
+
+    /** Return the largest sample value with [bits_per_sample]. */
+    static float scale(int bits_per_sample) {
+        return (1 << (bits_per_sample - 1)) - 1;
+    }
+
+    /**
+     * Return the size of a WAV file holding [data_size] bytes of samples,
+     * counting the pad byte after an odd number of them.
+     */
+    static long fileSize(long data_size) {
+        return HEADER_SIZE + data_size + (data_size & 1);
+    }
+
+    /**
+     * Put a WAV header for [data_size] bytes of mono samples into a
+     * little-endian buffer [out].
+     */
+    static void putHeader(ByteBuffer out, int sample_rate, int bits_per_sample, long data_size) {
+        int block_align = CHANNELS * bits_per_sample / Byte.SIZE;
+        out.put(ascii("RIFF"))
+                .putInt((int) (fileSize(data_size) - 8))
+                .put(ascii("WAVE"))
+                .put(ascii("fmt "))
+                .putInt(16)
+                .putShort((short) FORMAT_PCM)
+                .putShort((short) CHANNELS)
+                .putInt(sample_rate)
+                .putInt(sample_rate * block_align)
+                .putShort((short) block_align)
+                .putShort((short) bits_per_sample)
+                .put(ascii("data"))
+                .putInt((int) data_size);
+    }
+
+    /**
+     * Put [samples] from [start] to [end] into a little-endian buffer
+     * [out], [bytes_per_sample] each, clipped to full [scale].
+     */
+    static void putSamples(ByteBuffer out, float[] samples, int start, int end,
+            int bytes_per_sample, float scale) {
+        for (int i = start; i < end; i++) {
+            float sample = Math.max(-1f, Math.min(1f, samples[i]));
+            int value = Math.round(sample * scale);
+            if (bytes_per_sample == 2) {
+                out.putShort((short) value);
+            } else {
+                out.put((byte) value);
+                out.put((byte) (value >> 8));
+                out.put((byte) (value >> 16));
+            }
+        }
+    }
+
+    private static byte[] ascii(String tag) {
+        return tag.getBytes(StandardCharsets.US_ASCII);
+    }
+}
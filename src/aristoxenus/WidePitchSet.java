@@ -0,0 +1,301 @@
+package src.aristoxenus;
+
+import java.math.BigInteger;
+
+/**
+ * Immutable pitch map backed by two primitive longs.
+ *
+ * This is the wide counterpart of PitchSet, large enough to hold the full
+ * scientific range (NUMBER_OF_OCTAVES * TONES = 96 bits) with room to
+ * spare. Bits 0 to 63 live in the low word and bits 64 to 127 in the high
+ * word; the value is always treated as non-negative.
+ */
+public final class WidePitchSet {
+    /** Number of bits in the full scientific range. */
+    public static final int RANGE = Constants.NUMBER_OF_OCTAVES * Constants.TONES;
+
+    /** Number of bits an instance can hold. */
+    public static final int CAPACITY = 2 * Long.SIZE;
+
+    /** The empty pitch set. */
+    public static final WidePitchSet EMPTY = new WidePitchSet(0, 0);
+
+    private static final BigInteger WORD = BigInteger.ONE.shiftLeft(Long.SIZE).subtract(BigInteger.ONE);
+
+    private final long low;
+    private final long high;
+
+    private WidePitchSet(long low, long high) {
+        this.low = low;
+        this.high = high;
+    }
+
+    /** Return an instance with the given [low] and [high] words. */
+    public static WidePitchSet valueOf(long low, long high) {
+        if (low == 0 && high == 0) {
+            return EMPTY;
+        }
+        return new WidePitchSet(low, high);
+    }
+
+    /** Return an instance with the (non-negative) value of [bits]. */
+    public static WidePitchSet valueOf(long bits) {
+        return valueOf(bits, 0);
+    }
+
+    /**
+     * Return an instance with the value of the given [interval].
+     *
+     * @throws ArithmeticException If the value is negative or wider than
+     *                             CAPACITY bits.
+     */
+    public static WidePitchSet valueOf(BigInteger interval) {
+        if (interval.signum() < 0 || interval.bitLength() > CAPACITY) {
+            throw new ArithmeticException(
+                    String.format("Value %s does not fit in %s bits.", interval, CAPACITY));
+        }
+        return valueOf(interval.longValue(), interval.shiftRight(Long.SIZE).longValue());
+    }
+
+    /**
+     * Return an instance with the value of the given [interval].
+     *
+     * @throws ArithmeticException If the value is negative or wider than
+     *                             CAPACITY bits.
+     */
+    public static WidePitchSet valueOf(IntervalBase interval) {
+        return interval.toWidePitchSet();
+    }
+
+    /** Return an instance with the lowest [max_bits] flipped. */
+    public static WidePitchSet mask(int max_bits) {
+        if (max_bits <= Long.SIZE) {
+            return valueOf(PitchSet.mask(max_bits), 0);
+        }
+        return valueOf(-1L, PitchSet.mask(max_bits - Long.SIZE));
+    }
+
+    /** Return bits 0 to 63. */
+    public long low() {return this.low;}
+
+    /** Return bits 64 to 127. */
+    public long high() {return this.high;}
+
+    /** Return true if the value fits in a single PitchSet. */
+    public boolean isNarrow() {return this.high == 0 && this.low >= 0;}
+
+    /**
+     * Return the value as a PitchSet.
+     *
+     * @throws ArithmeticException If the value does not fit in a long.
+     */
+    public PitchSet toPitchSet() {
+        if (!isNarrow()) {
+            throw new ArithmeticException("Value does not fit in a PitchSet.");
+        }
+        return PitchSet.valueOf(this.low);
+    }
+
+    /** Return the value as a BigInteger. */
+    public BigInteger toBigInteger() {
+        return BigInteger.valueOf(this.high).and(WORD)
+                .shiftLeft(Long.SIZE)
+                .or(BigInteger.valueOf(this.low).and(WORD));
+    }
+
+    /** Return the value wrapped in an IntervalBase. */
+    public IntervalBase toIntervalBase() {return new IntervalBase(toBigInteger());}
+
+    /** Return the number of bits in the number. */
+    public int bitLength() {
+        if (this.high != 0) {
+            return Long.SIZE + PitchSet.bitLength(this.high);
+        }
+        return PitchSet.bitLength(this.low);
+    }
+
+    /** Return the number of flipped bits in the number. */
+    public int bitCount() {return Long.bitCount(this.low) + Long.bitCount(this.high);}
+
+    /** Return true if no bit is flipped. */
+    public boolean isEmpty() {return this.low == 0 && this.high == 0;}
+
+    /** Return true if the bit at [position] is flipped. */
+    public boolean testBit(int position) {
+        if (position < Long.SIZE) {
+            return (this.low & (1L << position)) != 0;
+        }
+        return PitchSet.testBit(this.high, position - Long.SIZE);
+    }
+
+    /**
+     * Return the position of the first flipped bit at or above [from], or
+     * -1 if there is none.
+     */
+    public int nextSetBit(int from) {
+        if (from < Long.SIZE) {
+            int position = PitchSet.nextSetBit(this.low, from);
+            if (position >= 0) {
+                return position;
+            }
+            from = Long.SIZE;
+        }
+        int position = PitchSet.nextSetBit(this.high, from - Long.SIZE);
+        return (position < 0) ? -1 : position + Long.SIZE;
+    }
+
+    /** Return the position of the lowest flipped bit, or -1 if empty. */
+    public int lowestSetBit() {return nextSetBit(0);}
+
+    public WidePitchSet setBit(int position) {
+        if (position < Long.SIZE) {
+            return valueOf(this.low | (1L << position), this.high);
+        }
+        return valueOf(this.low, this.high | (1L << (position - Long.SIZE)));
+    }
+
+    public WidePitchSet clearBit(int position) {
+        if (position < Long.SIZE) {
+            return valueOf(this.low & ~(1L << position), this.high);
+        }
+        return valueOf(this.low, this.high & ~(1L << (position - Long.SIZE)));
+    }
+
+    public WidePitchSet and(WidePitchSet other) {
+        return valueOf(this.low & other.low, this.high & other.high);
+    }
+
+    public WidePitchSet or(WidePitchSet other) {
+        return valueOf(this.low | other.low, this.high | other.high);
+    }
+
+    public WidePitchSet xor(WidePitchSet other) {
+        return valueOf(this.low ^ other.low, this.high ^ other.high);
+    }
+
+    public WidePitchSet andNot(WidePitchSet other) {
+        return valueOf(this.low & ~other.low, this.high & ~other.high);
+    }
+
+    /** Result of bitwise NOT, limited to the lowest [max_bits]. */
+    public WidePitchSet complement(int max_bits) {
+        return valueOf(~this.low, ~this.high).and(mask(max_bits));
+    }
+
+    /** Shift the bits left [n] times; bits beyond CAPACITY are lost. */
+    public WidePitchSet shiftLeft(int n) {
+        if (n <= 0) {
+            return (n == 0) ? this : shiftRight(-n);
+        }
+        if (n >= CAPACITY) {
+            return EMPTY;
+        }
+        if (n >= Long.SIZE) {
+            return valueOf(0, this.low << (n - Long.SIZE));
+        }
+        return valueOf(this.low << n, (this.high << n) | (this.low >>> (Long.SIZE - n)));
+    }
+
+    /** Shift the bits right [n] times. */
+    public WidePitchSet shiftRight(int n) {
+        if (n <= 0) {
+            return (n == 0) ? this : shiftLeft(-n);
+        }
+        if (n >= CAPACITY) {
+            return EMPTY;
+        }
+        if (n >= Long.SIZE) {
+            return valueOf(this.high >>> (n - Long.SIZE), 0);
+        }
+        return valueOf((this.low >>> n) | (this.high << (Long.SIZE - n)), this.high >>> n);
+    }
+
+    /** Rotate the bits of a collection with [max_bits] to the left 1 time. */
+    public WidePitchSet rotateLeft(int max_bits) {return rotateLeft(1, max_bits);}
+
+    /**
+     * Rotate the bits of a collection with [max_bits] to the left [n]
+     * times. Any bits at or above [max_bits] are discarded.
+     */
+    public WidePitchSet rotateLeft(int n, int max_bits) {
+        checkWidth(max_bits);
+        return rotateRight(max_bits - Math.floorMod(n, max_bits), max_bits);
+    }
+
+    /** Rotate the bits of a collection with [max_bits] to the right 1 time. */
+    public WidePitchSet rotateRight(int max_bits) {return rotateRight(1, max_bits);}
+
+    /**
+     * Rotate the bits of a collection with [max_bits] to the right [n]
+     * times. Any bits at or above [max_bits] are discarded.
+     */
+    public WidePitchSet rotateRight(int n, int max_bits) {
+        checkWidth(max_bits);
+        WidePitchSet mask = mask(max_bits);
+        WidePitchSet bits = and(mask);
+        n = Math.floorMod(n, max_bits);
+        if (n == 0) {
+            return bits;
+        }
+        return bits.shiftRight(n).or(bits.shiftLeft(max_bits - n)).and(mask);
+    }
+
+    /**
+     * Return the structure with a bass note [interval] semitones below its
+     * root, as in a slash chord; the bass becomes bit 0. E.g. a major
+     * triad with a bass 4 semitones below is C/Ab.
+     *
+     * @throws ArithmeticException If the result is wider than CAPACITY.
+     */
+    public WidePitchSet withBass(int interval) {
+        if (interval < 0) {
+            throw new IllegalArgumentException(
+                    String.format("Bass interval %s is negative.", interval));
+        }
+        return EMPTY.stack(this, interval).setBit(0);
+    }
+
+    /**
+     * Return this structure with an [upper] structure placed [offset]
+     * semitones above bit 0, as in a polychord.
+     *
+     * @throws ArithmeticException If the result is wider than CAPACITY.
+     */
+    public WidePitchSet stack(WidePitchSet upper, int offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException(
+                    String.format("Offset %s is negative.", offset));
+        }
+        if (!upper.isEmpty() && upper.bitLength() + offset > CAPACITY) {
+            throw new ArithmeticException(
+                    String.format("Stacked structure does not fit in %s bits.", CAPACITY));
+        }
+        return or(upper.shiftLeft(offset));
+    }
+
+    /** Return the binary representation of the number as a string. */
+    public String toBinaryString() {return toBigInteger().toString(2);}
+
+    /** Return the decimal representation of the number as a string. */
+    @Override
+    public String toString() {return toBigInteger().toString();}
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof WidePitchSet)) {
+            return false;
+        }
+        WidePitchSet comparandum = (WidePitchSet) other;
+        return comparandum.low == this.low && comparandum.high == this.high;
+    }
+
+    @Override
+    public int hashCode() {return 31 * Long.hashCode(this.high) + Long.hashCode(this.low);}
+
+    private static void checkWidth(int max_bits) {
+        if (max_bits <= 0 || max_bits > CAPACITY) {
+            throw new IllegalArgumentException(
+                    String.format("Cannot rotate %s bits; the width must be 1 to %s.", max_bits, CAPACITY));
+        }
+    }
+}
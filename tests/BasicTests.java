@@ -1,16 +1,47 @@
 package tests;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.ShortMessage;
+
+import src.aristoxenus.BulkParsing;
+import src.aristoxenus.Classes.ChordSymbol;
+import src.aristoxenus.Classes.Identified;
+import src.aristoxenus.Classes.ParsedBatch;
+import src.aristoxenus.Identification;
 import src.aristoxenus.IntervalBase;
+import src.aristoxenus.LivePitchState;
+import src.aristoxenus.MidiFileSlicer;
 
 
 
 import src.aristoxenus.Constants;
 import src.aristoxenus.Functions;
 import src.aristoxenus.Constants.IntervalValues;
+import src.aristoxenus.ModeEngine;
 import src.aristoxenus.Nomenclature;
+import src.aristoxenus.Parsing;
+import src.aristoxenus.Permutation;
+import src.aristoxenus.PitchClassCatalog;
+import src.aristoxenus.PitchSet;
+import src.aristoxenus.Renderer;
+import src.aristoxenus.Rendering;
+import src.aristoxenus.SampleBank;
+import src.aristoxenus.Sampling;
+import src.aristoxenus.SetClass;
+import src.aristoxenus.ScientificPitch;
+import src.aristoxenus.Synthesizer;
+import src.aristoxenus.Voicing;
+import src.aristoxenus.WaveFile;
+import src.aristoxenus.WidePitchSet;
 import src.aristoxenus.Temperament;
 
 
@@ -31,6 +62,28 @@ public class BasicTests {
         //  test_conversions();
         //  System.out.println("\n");
         // test_bitwise();
+        // System.out.println("\n");
+        // test_pitch_sets();
+        // System.out.println("\n");
+        // test_catalog();
+        // System.out.println("\n");
+        // test_set_classes();
+        // System.out.println("\n");
+        // test_permutation();
+        // System.out.println("\n");
+        // test_sampling();
+        // System.out.println("\n");
+        // test_renderer();
+        // System.out.println("\n");
+        // test_parsing();
+        // System.out.println("\n");
+        // test_bulk_parsing();
+        // System.out.println("\n");
+        // test_synthesis();
+        // test_voicing();
+        // test_identification();
+        // test_live_pitch_state();
+        // test_midi_slicing();
 
         List<String> cha = new ArrayList<String>();
         cha.add("a");
@@ -69,7 +122,24 @@ public class BasicTests {
         * Test that the conversion functions generate the expected values.
         */
     public static void test_conversions() {
-    
+        System.out.println("\nExpect A4 = 440.0: ");
+        System.out.println(Nomenclature.convertNoteToFrequency("A4"));
+        System.out.println("\nExpect A4 = pitch 57, MIDI 69; B#4 = pitch 60 (C#|Db4 = 49): ");
+        System.out.println(String.format("%s, %s; %s (%s = 49)",
+                ScientificPitch.pitchOf("A4"), ScientificPitch.toMidi(ScientificPitch.pitchOf("A4")),
+                ScientificPitch.pitchOf("B#4"), ScientificPitch.name(49)));
+        System.out.println("\nExpect 445 Hz = A4 (+19.6 cents): ");
+        System.out.println(Nomenclature.nearestNote(445, Constants.SHARPS));
+        System.out.println("\nExpect 261.626 Hz = C4: ");
+        System.out.println(Nomenclature.convertFrequencyToNote(261.626, Constants.FLATS));
+
+        double[] tracked = {27.5, 55.3, 109.0, 0, 100000};
+        int[] pitches = new int[tracked.length];
+        double[] cents = new double[tracked.length];
+        Temperament.nearestPitches(tracked, pitches, cents);
+        System.out.println("\nExpect pitches [9, 21, 33, -1, -1]: ");
+        System.out.println(Arrays.toString(pitches));
+        System.out.println(Arrays.toString(cents));
     }
 
     public static void test_nomenclature() {
@@ -81,10 +151,29 @@ public class BasicTests {
         System.out.println(Nomenclature.chromatic(Constants.FLATS));
         System.out.println("\nEnharmonic decoder map: ");
         System.out.println(Nomenclature.enharmonicDecoder());
+        System.out.println("\nEnharmonic equivalents of C#|Db: ");
+        System.out.println(Nomenclature.getEnharmonicEquivalents("C#|Db"));
+        System.out.println("\nExpect B##4 decodes to C#|Db: ");
+        System.out.println(Nomenclature.decodeEnharmonic("B##4"));
         System.out.println("\nChromatic scale, binomial, scientific octave=0: ");
         System.out.println(Nomenclature.scientificOctave(Constants.BINOMIALS));
         System.out.println("\nChromatic scale, sharp, scientific octave=4: ");
         System.out.println(Nomenclature.scientificOctave(Constants.SHARPS, 4));
+        System.out.println("\nExpect A as G is G##: ");
+        System.out.println(Nomenclature.encodeEnharmonic("A", "G"));
+        System.out.println("\nExpect Db major is Db, Eb, F, Gb, Ab, Bb, C: ");
+        System.out.println(Nomenclature.bestHeptatonic("C#|Db", new IntervalBase(2741)));
+        System.out.println("\nExpect C# major forced is C#, D#, E#, F#, G#, A#, B#: ");
+        System.out.println(Nomenclature.forceHeptatonic("C#", new IntervalBase(2741)));
+        System.out.println("\nExpect Bb7 is Bb, D, F, Ab: ");
+        System.out.println(Nomenclature.bestSpelling("A#|Bb", new IntervalBase(1169)));
+        System.out.println("\nExpect D major pentatonic is D, E, F#, A, B: ");
+        System.out.println(Nomenclature.bestSpelling("D", new IntervalBase(661)));
+        System.out.println("\nExpect A######6 decodes to D#|Eb7: ");
+        System.out.println(Nomenclature.decodeScientificEnharmonic("A######6"));
+        System.out.println("\nExpect A4 as G below is G##4, above is Gbbbbbbbbbb5: ");
+        System.out.println(Nomenclature.encodeScientificEnharmonic("A4", "G", Constants.Keywords.BELOW)
+                + ", " + Nomenclature.encodeScientificEnharmonic("A4", "G", Constants.Keywords.ABOVE));
 
     }
 
@@ -132,9 +221,542 @@ public class BasicTests {
     }
 
 
+    /**
+     * Test that the primitive pitch sets agree with IntervalBase.
+     */
+    public static void test_pitch_sets(){
+        IntervalBase major_scale = new IntervalBase(2741);
+        PitchSet primitive = major_scale.toPitchSet();
+        System.out.println(String.format(
+            "\nExpect 2741 rotated right = 3418 (%s), IntervalBase = %s", 
+            primitive.rotateRight(Constants.TONES),
+            IntervalBase.rotateRight(major_scale, Constants.TONES)));
+
+        System.out.println(String.format(
+            "Expect next inversion 1387 (%s), previous inversion 1709 (%s)", 
+            major_scale.next_inversion(Constants.TONES),
+            major_scale.previous_inversion(Constants.TONES)));
+        int[] modes = new int[Constants.TONES];
+        ModeEngine.modes(2741, Constants.TONES, modes);
+        System.out.println(String.format(
+            "Expect the same modes as the catalog: %s", 
+            Arrays.equals(Arrays.copyOf(modes, 7), PitchClassCatalog.modes(2741)) ? "Success!" : "Failure!"));
+
+        WidePitchSet wide = primitive.toWidePitchSet().shiftLeft(90);
+        System.out.println(String.format(
+            "Expect wide shift to survive a round trip: %s", 
+            wide.shiftRight(90).equals(primitive.toWidePitchSet()) ? "Success!" : "Failure!"));
+        System.out.println(String.format(
+            "Expect %s == %s", 
+            wide, major_scale.shiftLeft(90)));
+
+        WidePitchSet top = primitive.toWidePitchSet().shiftLeft(84);
+        System.out.println(String.format(
+            "Expect the top octave major scale rotated left 20 in 96 bits = 2741 << 8 = 701696 (%s)", 
+            top.rotateLeft(20, WidePitchSet.RANGE)));
+        // Rotate with BigInteger shifts, independently of both.
+        BigInteger range = BigInteger.ONE.shiftLeft(WidePitchSet.RANGE).subtract(BigInteger.ONE);
+        BigInteger bits = BigInteger.valueOf(2741).shiftLeft(84);
+        BigInteger rotated = bits.shiftLeft(1).or(bits.shiftRight(WidePitchSet.RANGE - 1)).and(range);
+        System.out.println(String.format(
+            "Expect 96-bit rotation to agree with BigInteger shifts: %s, IntervalBase: %s", 
+            top.rotateLeft(WidePitchSet.RANGE).toBigInteger().equals(rotated) ? "Success!" : "Failure!",
+            IntervalBase.rotateLeft(major_scale.shiftLeft(84), WidePitchSet.RANGE).toString()
+                .equals(rotated.toString()) ? "Success!" : "Failure!"));
+        System.out.println(String.format(
+            "Expect C/Ab = 2321 (%s), D@C = 2375825 (%s)", 
+            WidePitchSet.valueOf(145).withBass(4),
+            WidePitchSet.valueOf(145).stack(WidePitchSet.valueOf(145), 14)));
+
+        System.out.println(String.format(
+            "Expect C, D, E, F, G, A, B: %s", 
+            Rendering.renderPlain(primitive, Nomenclature.chromatic(Constants.SHARPS))));
+    }
 
 
+    /**
+     * Test the precomputed properties of the 12-tone structures.
+     */
+    public static void test_catalog(){
+        int major_scale = 2741;
+        System.out.println(String.format(
+            "\nExpect major scale cardinality 7 (%s), interval vector [2, 5, 4, 3, 6, 1] (%s)", 
+            PitchClassCatalog.cardinality(major_scale),
+            Arrays.toString(PitchClassCatalog.intervalVector(major_scale))));
+        System.out.println(String.format(
+            "Expect major triad modes [145, 265, 545] (%s)", 
+            Arrays.toString(PitchClassCatalog.modes(145))));
+        System.out.println(String.format(
+            "Expect augmented triad symmetry 3 (%s), diminished seventh 4 (%s)", 
+            PitchClassCatalog.symmetry(273),
+            PitchClassCatalog.symmetry(585)));
+    }
 
 
+    /**
+     * Test normal and prime forms, and the bulk forms against the single ones.
+     */
+    public static void test_set_classes(){
+        System.out.println(String.format(
+            "\nExpect major triad prime form [0, 3, 7] = 137 (%s), inverted true (%s)", 
+            SetClass.primeForm(145), SetClass.isInvertedPrime(145)));
+        System.out.println(String.format(
+            "Expect minor triad prime form 137 (%s), inverted false (%s)", 
+            SetClass.primeForm(137), SetClass.isInvertedPrime(137)));
+        System.out.println(String.format(
+            "Expect 352 transposition classes (%s), 224 inversion classes (%s)", 
+            SetClass.TRANSPOSITION_CLASSES, SetClass.INVERSION_CLASSES));
+        int[] masks = new int[PitchClassCatalog.SIZE];
+        for (int mask = 0; mask < masks.length; mask++){
+            masks[mask] = mask;
+        }
+        int[] normal = new int[masks.length];
+        int[] prime = new int[masks.length];
+        int[] transposition = new int[masks.length];
+        int[] inversion = new int[masks.length];
+        SetClass.normalForms(masks, normal);
+        SetClass.primeForms(masks, prime);
+        SetClass.transpositionClasses(masks, transposition);
+        SetClass.inversionClasses(masks, inversion);
+        boolean agree = true;
+        for (int mask : masks){
+            agree &= normal[mask] == SetClass.normalForm(mask)
+                && prime[mask] == SetClass.primeForm(mask)
+                && transposition[mask] == SetClass.transpositionClass(mask)
+                && inversion[mask] == SetClass.inversionClass(mask);
+        }
+        System.out.println(String.format(
+            "Expect the bulk forms to agree with the single ones: %s", agree ? "Success!" : "Failure!"));
+        System.out.println(String.format(
+            "Expect 352 distinct normal forms (%s), 224 distinct prime forms (%s)", 
+            SetClass.distinctNormalForms(masks).length, SetClass.distinctPrimeForms(masks).length));
+    }
+
+
+    /**
+     * Test subset counts, rank/unrank round trips and note orderings.
+     */
+    public static void test_permutation(){
+        System.out.println(String.format(
+            "\nExpect 220 triads of 12 bits serial (%s) and parallel (%s)",
+            Permutation.subsetStream(12, 3, false).count(),
+            Permutation.subsetStream(12, 3, true).count()));
+        System.out.println(String.format(
+            "Expect binomial(96, 3) = 142880 wide triads (%s)",
+            Permutation.wideSubsetStream(96, 3, true).count()));
+        boolean round_trip = Permutation.subsetStream(12, 5, false)
+            .allMatch(mask -> Permutation.unrank(Permutation.rank(mask), 5) == mask);
+        WidePitchSet wide = WidePitchSet.EMPTY.setBit(3).setBit(40).setBit(95);
+        round_trip &= Permutation.unrankWide(Permutation.rank(wide), 3).equals(wide);
+        System.out.println(String.format(
+            "Expect rank and unrank to round trip: %s", round_trip ? "Success!" : "Failure!"));
+        System.out.println(String.format(
+            "Expect 6 distinct orderings of a triad (%s)",
+            Permutation.orderingStream(new IntervalBase(145), true)
+                .map(Arrays::toString).distinct().count()));
+    }
+
+    /**
+     * Test that seeded samples have the requested notes, inside the width.
+     */
+    public static void test_sampling(){
+        Sampling sampling = new Sampling(42);
+        boolean valid = true;
+        for (int i = 0; i < 1000; i++){
+            long mask = sampling.sample(12, 5);
+            valid &= Long.bitCount(mask) == 5 && mask >>> 12 == 0;
+        }
+        valid &= sampling.samples(10000, 12, 5).parallel()
+            .allMatch(mask -> Long.bitCount(mask) == 5 && mask >>> 12 == 0);
+        long[] masks = new long[100000];
+        sampling.fill(masks, 12, 5);
+        valid &= Arrays.stream(masks).allMatch(mask -> Long.bitCount(mask) == 5 && mask >>> 12 == 0);
+        System.out.println(String.format(
+            "\nExpect 5 distinct notes of 12 in every sample: %s", valid ? "Success!" : "Failure!"));
+        System.out.println(String.format(
+            "Expect all binomial(12, 5) = 792 structures among the filled ones (%s)",
+            Arrays.stream(masks).distinct().count()));
+        sampling.fillRooted(masks, 12, 4);
+        System.out.println(String.format(
+            "Expect rooted samples to have the root and 4 notes: %s",
+            Arrays.stream(masks).allMatch(mask -> (mask & 1) == 1 && Long.bitCount(mask) == 4
+                && mask >>> 12 == 0) ? "Success!" : "Failure!"));
+        System.out.println(String.format(
+            "Expect the same seed to give the same structures: %s",
+            new Sampling(7).samples(100, 24, 6).boxed().toList().equals(
+                new Sampling(7).samples(100, 24, 6).boxed().toList()) ? "Success!" : "Failure!"));
+    }
+
+    /**
+     * Test compiled renderers against the bit-by-bit rendering they replaced.
+     */
+    public static void test_renderer(){
+        List<List<String>> scales = List.of(Nomenclature.chromatic(Constants.SHARPS),
+            Nomenclature.chromatic(Constants.FLATS), Nomenclature.chromatic());
+        WidePitchSet wide = WidePitchSet.valueOf(2741).setBit(76).setBit(100).setBit(127);
+        long[] masks = {145, 2741, 1L << 40 | 1, 0};
+        boolean same = true;
+        for (List<String> scale : scales){
+            Renderer renderer = Renderer.forScale(scale);
+            for (long mask : masks){
+                List<String> expected = renderBitByBit(WidePitchSet.valueOf(mask), scale);
+                same &= renderer.render(mask).equals(expected)
+                    && renderer.render(mask, new StringBuilder(), ", ").toString()
+                        .equals(String.join(", ", expected));
+            }
+            List<String> expected = renderBitByBit(wide, scale);
+            same &= renderer.render(wide).equals(expected)
+                && Rendering.renderPlain(wide.toIntervalBase(), scale).equals(expected);
+            try {
+                Appendable out = renderer.render(wide, new StringBuilder(), " ");
+                same &= out.toString().equals(String.join(" ", expected));
+                out = renderer.renderAll(masks, new StringBuilder(), ",", ";");
+                same &= out.toString().equals(String.join(";", 
+                    Arrays.stream(renderer.renderAll(masks, ",")).toList()) + ";");
+            } catch (IOException e) {
+                same = false;
+            }
+        }
+        System.out.println(String.format(
+            "\nExpect renderers to match bit-by-bit rendering, lists and Appendables: %s",
+            same ? "Success!" : "Failure!"));
+        List<String> scale = Nomenclature.chromatic(Constants.SHARPS);
+        List<String> before = Rendering.renderPlain(WidePitchSet.valueOf(145), scale);
+        Collections.rotate(scale, -2);
+        System.out.println(String.format(
+            "Expect a scale changed in place to render anew: [C, E, G] (%s), [D, F#, A] (%s)",
+            before, Rendering.renderPlain(WidePitchSet.valueOf(145), scale)));
+        System.out.println(String.format(
+            "Expect [C, E, G, E, G] (%s)",
+            Renderer.binomial().render(WidePitchSet.valueOf(145).setBit(76).setBit(127))));
+    }
+
+    /** Render an [interval_structure] by probing every bit, as renderPlain once did. */
+    private static List<String> renderBitByBit(WidePitchSet interval_structure, List<String> chromatic_scale){
+        List<String> rendering = new ArrayList<String>();
+        for (int i = 0; i < interval_structure.bitLength(); i++){
+            if (interval_structure.testBit(i)){
+                rendering.add(chromatic_scale.get(i % chromatic_scale.size()));
+            }
+        }
+        return rendering;
+    }
+
+    /**
+     * Test that chord symbols are parsed into the expected structures.
+     */
+    public static void test_parsing(){
+        System.out.println(String.format(
+            "\nExpect Cmaj7 = 2193 (%s)", Parsing.parseChord("Cmaj7").structure));
+        System.out.println(String.format(
+            "Expect F#m7b5 root 6 (%s), structure 1097 (%s)", 
+            Parsing.parseChord("F#m7b5").root,
+            Parsing.parseChord("F#m7b5").structure));
+        System.out.println(String.format(
+            "Expect C/E over E = 4 (%s), structure 37121 (%s)", 
+            Parsing.parseChord("C/E").bass,
+            Parsing.parseChord("C/E").structure));
+        System.out.println(String.format(
+            "Expect D@C = 145 | 145 << 14 = 2375825 (%s)", 
+            Parsing.parseChord("D@C").structure));
+        System.out.println(String.format(
+            "Expect the cache to return the same instance: %s", 
+            Parsing.parseChord("Cmaj7") == Parsing.parseChord("Cmaj7") ? "Success!" : "Failure!"));
+        try {
+            Parsing.parseChord("Hm7");
+            System.out.println("Expected Hm7 to be rejected: Failure!");
+        } catch (IllegalArgumentException e) {
+            System.out.println(String.format("Expect Hm7 to be rejected: %s", e.getMessage()));
+        }
+        System.out.println(String.format(
+            "Expect Bbbm root 9 (%s), C##7 root 2 (%s)", 
+            Parsing.parseChord("Bbbm").root, Parsing.parseChord("C##7").root));
+        for (String mixed : new String[] {"C#b7", "Cb#", "Bbb#m", "C/Eb#"}){
+            try {
+                Parsing.parseChord(mixed);
+                System.out.println(String.format("Expected %s to be rejected: Failure!", mixed));
+            } catch (IllegalArgumentException e) {
+                System.out.println(String.format("Expect %s to be rejected: %s", mixed, e.getMessage()));
+            }
+        }
+    }
+
+
+    /**
+     * Test that batches parse the same as single symbols, ordered or not.
+     */
+    public static void test_bulk_parsing(){
+        List<String> symbols = new ArrayList<String>();
+        for (String root : Nomenclature.chromatic(Constants.SHARPS)){
+            for (String suffix : Constants.CHORD_SUFFIXES.keySet()){
+                symbols.add(root + suffix);
+            }
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        for (boolean ordered : new boolean[] {true, false}){
+            List<ParsedBatch> batches = new ArrayList<ParsedBatch>();
+            BulkParsing.parse(symbols.stream(), 32, ordered, pool, batches::add);
+            List<Long> sequences = new ArrayList<Long>();
+            boolean same = true;
+            int count = 0;
+            for (ParsedBatch batch : batches){
+                sequences.add(batch.sequence);
+                for (int i = 0; i < batch.size(); i++){
+                    ChordSymbol parsed = Parsing.parseChord(symbols.get((int) batch.sequence * 32 + i));
+                    same &= batch.roots[i] == parsed.root && batch.basses[i] == parsed.bass
+                        && batch.masks[i] == parsed.pitches.low()
+                        && batch.high_masks[i] == parsed.pitches.high();
+                    count++;
+                }
+            }
+            List<Long> sorted = new ArrayList<Long>(sequences);
+            Collections.sort(sorted);
+            System.out.println(String.format(
+                "%sExpect %s %s symbols (%s) as parseChord gives them: %s",
+                ordered ? "\n" : "", ordered ? "ordered" : "unordered", symbols.size(), count,
+                same ? "Success!" : "Failure!"));
+            System.out.println(String.format(
+                "Expect every batch once%s: %s", ordered ? ", in order" : "",
+                (ordered ? sequences : sorted).equals(
+                    java.util.stream.LongStream.range(0, batches.size()).boxed().toList())
+                    ? "Success!" : "Failure!"));
+        }
+        pool.shutdown();
+    }
+
+
+    /**
+     * Test that a structure renders to a WAV file of the expected size.
+     */
+    public static void test_synthesis(){
+        Synthesizer synthesizer = new Synthesizer();
+        float[] clip = synthesizer.renderClip(
+            ScientificPitch.pitchOf("C4"), WidePitchSet.valueOf(145), 0.5);
+        float peak = 0;
+        for (float sample : clip){
+            peak = Math.max(peak, Math.abs(sample));
+        }
+        System.out.println(String.format(
+            "\nExpect 22050 samples (%s), peak at most 0.8 (%s)", clip.length, peak));
+        try {
+            Path path = Files.createTempFile("aristoxenus", ".wav");
+            WaveFile.write(path, clip, synthesizer.sampleRate(), 16);
+            System.out.println(String.format(
+                "Expect 44 + 2 * 22050 = 44144 bytes (%s)", Files.size(path)));
+            Files.delete(path);
+        } catch (IOException e) {
+            System.out.println(String.format("Expect a WAV file: Failure! (%s)", e));
+        }
+        try {
+            Path bank_path = Files.createTempFile("aristoxenus", ".axsb");
+            Path path = Files.createTempFile("aristoxenus", ".wav");
+            int[] triads = {Constants.ChordStructures.MAJOR_TRIAD, Constants.ChordStructures.MINOR_TRIAD};
+            SampleBank.export(bank_path, SampleBank.clips(triads, ScientificPitch.octave(4), 0.5),
+                synthesizer.sampleRate(), 16);
+            try (SampleBank bank = SampleBank.open(bank_path)) {
+                int c_major = bank.find(ScientificPitch.pitchOf("C4"), WidePitchSet.valueOf(145));
+                bank.extract(c_major, path);
+                byte[] extracted = Files.readAllBytes(path);
+                WaveFile.write(path, clip, synthesizer.sampleRate(), 16);
+                System.out.println(String.format(
+                    "Expect 24 clips (%s), C major the same as the WAV above (%s)", bank.size(),
+                    Arrays.equals(extracted, Files.readAllBytes(path))));
+            }
+            Files.delete(bank_path);
+            Files.delete(path);
+        } catch (IOException e) {
+            System.out.println(String.format("Expect a sample bank: Failure! (%s)", e));
+        }
+        try {
+            // 24-bit clips of an odd number of samples need a pad byte.
+            Path bank_path = Files.createTempFile("aristoxenus", ".axsb");
+            Path path = Files.createTempFile("aristoxenus", ".wav");
+            WaveFile.write(path, new float[] {0.5f, -0.5f, 0.25f}, synthesizer.sampleRate(), 24);
+            java.nio.ByteBuffer wave = java.nio.ByteBuffer.wrap(Files.readAllBytes(path))
+                .order(java.nio.ByteOrder.LITTLE_ENDIAN);
+            System.out.println(String.format(
+                "Expect 44 + 9 + 1 = 54 bytes (%s), RIFF size 46 (%s), data size 9 (%s)",
+                wave.capacity(), wave.getInt(4), wave.getInt(40)));
+            double seconds = 22051.0 / synthesizer.sampleRate();
+            float[] odd_clip = synthesizer.renderClip(
+                ScientificPitch.pitchOf("C4"), WidePitchSet.valueOf(145), seconds);
+            int[] triads = {Constants.ChordStructures.MAJOR_TRIAD};
+            SampleBank.export(bank_path, SampleBank.clips(triads, ScientificPitch.octave(4), seconds),
+                synthesizer.sampleRate(), 24);
+            try (SampleBank bank = SampleBank.open(bank_path)) {
+                boolean same = true;
+                for (int i = 0; i < bank.size(); i++){
+                    bank.extract(i, path);
+                    byte[] extracted = Files.readAllBytes(path);
+                    WaveFile.write(path, synthesizer.renderClip(bank.root(i), bank.pitches(i), seconds),
+                        synthesizer.sampleRate(), 24);
+                    same &= Arrays.equals(extracted, Files.readAllBytes(path));
+                }
+                System.out.println(String.format(
+                    "Expect %s samples (%s), padded 24-bit clips the same as their WAVs: %s",
+                    odd_clip.length, bank.samples(0), same ? "Success!" : "Failure!"));
+            }
+            Files.delete(bank_path);
+            Files.delete(path);
+        } catch (IOException e) {
+            System.out.println(String.format("Expect a padded sample bank: Failure! (%s)", e));
+        }
+    }
+
+    public static void test_voicing(){
+        WidePitchSet major_seventh = WidePitchSet.valueOf(Constants.ChordStructures.MAJOR_SEVENTH);
+        int c4 = ScientificPitch.pitchOf("C4");
+        System.out.println(String.format("\nExpect 48, 52, 55, 59 (%s)",
+            Voicing.voice(Constants.ChordVoicingNames.CLOSE, c4, major_seventh, 0).toIntervalBase().bits().boxed().toList()));
+        System.out.println(String.format("Expect 43, 48, 52, 59 (%s)",
+            Voicing.voice(Constants.ChordVoicingNames.DROP_2, c4, major_seventh, 0).toIntervalBase().bits().boxed().toList()));
+        System.out.println(String.format("Expect 36, 43, 52, 59 (%s)",
+            Voicing.voice(Constants.ChordVoicingNames.DROP_2_AND_4, c4, major_seventh, 0).toIntervalBase().bits().boxed().toList()));
+        System.out.println(String.format("Expect 5 voicings of C major within a major tenth (%s)",
+            Voicing.count(c4, WidePitchSet.valueOf(Constants.ChordStructures.MAJOR_TRIAD), 16)));
+    }
+
+    public static void test_identification(){
+        System.out.println(String.format("\nExpect [C6, Am7] (%s)",
+            Identification.identifyAll(Constants.ChordStructures.MAJOR_SIXTH)));
+        System.out.println(String.format("Expect [C ionian, D dorian] (%s)",
+            Identification.identifyAll(2741).subList(0, 2)));
+        System.out.println(String.format("Expect E (%s)",
+            Identification.identify(WidePitchSet.valueOf(Constants.ChordStructures.MAJOR_TRIAD).shiftLeft(ScientificPitch.pitchOf("E4")))));
+    }
+
+    public static void test_live_pitch_state(){
+        LivePitchState live = new LivePitchState();
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<Long>());
+        live.addListener(analysis -> latencies.add(System.nanoTime() - analysis.nanos));
+
+        // One producer thread per note of Cmaj7, each with its own byte
+        // stream; each stream strikes its note many times.
+        int[] notes = {60, 64, 67, 71};
+        List<Thread> producers = new ArrayList<Thread>();
+        for (int note : notes) {
+            byte[] events = syntheticEvents(note, 1000);
+            LivePitchState.ByteParser parser = live.parser();
+            producers.add(new Thread(() -> parser.parse(events, 0, events.length)));
+        }
+        for (Thread producer : producers) {
+            producer.start();
+        }
+        try {
+            for (Thread producer : producers) {
+                producer.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println(String.format("\nExpect Cmaj7 (%s), [C, E, G, B] (%s)",
+            live.latest().name, live.latest().spelled));
+
+        try {
+            live.send(new ShortMessage(ShortMessage.NOTE_OFF, 0, 64, 0), -1);
+            live.send(new ShortMessage(ShortMessage.NOTE_ON, 0, 71, 0), -1);
+        } catch (InvalidMidiDataException e) {
+            System.out.println(String.format("Expect MIDI messages: Failure! (%s)", e));
+        }
+        System.out.println(String.format("Expect C5 (%s)", live.latest().name));
+        Identified fifth = live.latest().name;
+        live.noteOn(72);
+        System.out.println(String.format("Expect the doubled C to keep the name: %s, [C, G, C] (%s)",
+            live.latest().name == fifth ? "Success!" : "Failure!", live.latest().plain));
+        // Threads can be descheduled mid-event, so look at the 99th
+        // percentile rather than the slowest.
+        List<Long> sorted = new ArrayList<Long>(latencies);
+        Collections.sort(sorted);
+        System.out.println(String.format("Expect labels under 1 ms after their events (%.3f ms)",
+            sorted.get(sorted.size() * 99 / 100) / 1e6));
+    }
+
+    /**
+     * Return a raw MIDI stream that strikes a [note] [times] times, with
+     * running status and clock bytes in between, and leaves it sounding.
+     */
+    private static byte[] syntheticEvents(int note, int times){
+        java.io.ByteArrayOutputStream events = new java.io.ByteArrayOutputStream();
+        events.write(ShortMessage.NOTE_ON);
+        for (int i = 0; i < times; i++){
+            events.write(note);
+            events.write(100);
+            events.write(ShortMessage.TIMING_CLOCK);
+            events.write(note);
+            events.write(0);
+        }
+        events.write(note);
+        events.write(100);
+        return events.toByteArray();
+    }
+
+    public static void test_midi_slicing(){
+        // Tempo track; C then F over C4 on channel 1; a C3 bass on
+        // channel 2 and a kick on the percussion channel in another track.
+        byte[] file = midiFile(480,
+            track(0x00, 0xFF, 0x51, 0x03, 0x07, 0xA1, 0x20, 0x00, 0xFF, 0x2F, 0x00),
+            track(0x00, 0x90, 60, 100, 0x00, 64, 100, 0x00, 67, 100,
+                0x83, 0x60, 60, 0, 0x00, 64, 0, 0x00, 67, 0,
+                0x00, 65, 100, 0x00, 69, 100, 0x00, 72, 100,
+                0x83, 0x60, 0x80, 65, 0, 0x00, 69, 0, 0x00, 72, 0, 0x00, 0xFF, 0x2F, 0x00),
+            track(0x00, 0x91, 48, 100, 0x00, 0x99, 36, 100, 0x87, 0x40, 0x81, 48, 0,
+                0x00, 0xFF, 0x2F, 0x00));
+        List<String> slices = new ArrayList<String>();
+        MidiFileSlicer.Slices names = (index, start_tick, end_tick, low, high) ->
+            slices.add(String.format("%s-%s %s", start_tick, end_tick,
+                Identification.identify(WidePitchSet.valueOf(low, high))));
+        try {
+            Path path = Files.createTempFile("aristoxenus", ".mid");
+            path.toFile().deleteOnExit();
+            Files.write(path, file);
+            MidiFileSlicer.slice(path, names);
+            System.out.println(String.format("\nExpect [0-480 C, 480-960 F] (%s)", slices));
+            long count = MidiFileSlicer.sliceAll(List.of(path, path, path), (index, start_tick, end_tick, low, high) -> {});
+            System.out.println(String.format("Expect 6 slices from 3 files (%s)", count));
+            // A status byte where the note should be.
+            Path corrupt = Files.createTempFile("aristoxenus", ".mid");
+            corrupt.toFile().deleteOnExit();
+            Files.write(corrupt, midiFile(480, track(0x00, 0x90, 0x85, 0x40, 0x00, 0xFF, 0x2F, 0x00)));
+            List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+            count = MidiFileSlicer.sliceAll(List.of(path, corrupt, path), new MidiFileSlicer.Slices(){
+                public void slice(int index, long start_tick, long end_tick, long low, long high){}
+                public void failed(int index, IOException error){
+                    failures.add(index + " " + error.getMessage());
+                }
+            });
+            System.out.println(String.format(
+                "Expect 4 slices (%s) and [1 Data byte expected.] (%s)", count, failures));
+            Files.write(path, Arrays.copyOf(file, file.length - 5));
+            MidiFileSlicer.slice(path, names);
+            System.out.println("Expect a truncated file: Failure!");
+        } catch (IOException e) {
+            System.out.println(String.format("Expect a truncated file (%s)", e.getMessage()));
+        }
+    }
+
+    /** Return a format 1 Standard MIDI File of the [tracks]. */
+    private static byte[] midiFile(int division, byte[]... tracks){
+        java.io.ByteArrayOutputStream file = new java.io.ByteArrayOutputStream();
+        file.writeBytes(new byte[] {'M', 'T', 'h', 'd', 0, 0, 0, 6, 0, 1,
+            0, (byte) tracks.length, (byte) (division >> 8), (byte) division});
+        for (byte[] track : tracks){
+            file.writeBytes(track);
+        }
+        return file.toByteArray();
+    }
+
+    /** Return an MTrk chunk of the [events] bytes. */
+    private static byte[] track(int... events){
+        byte[] track = new byte[8 + events.length];
+        track[0] = 'M';
+        track[1] = 'T';
+        track[2] = 'r';
+        track[3] = 'k';
+        track[7] = (byte) events.length;
+        for (int i = 0; i < events.length; i++){
+            track[8 + i] = (byte) events[i];
+        }
+        return track;
+    }
 
 }
@@ -0,0 +1,309 @@
+package tests;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import src.aristoxenus.Constants;
+import src.aristoxenus.Functions;
+import src.aristoxenus.Identification;
+import src.aristoxenus.IntervalBase;
+import src.aristoxenus.ModeEngine;
+import src.aristoxenus.Nomenclature;
+import src.aristoxenus.PitchClassCatalog;
+import src.aristoxenus.PitchSet;
+import src.aristoxenus.Renderer;
+import src.aristoxenus.Rendering;
+import src.aristoxenus.ScientificPitch;
+import src.aristoxenus.Temperament;
+
+
+/**
+ * Micro-benchmarks for the hot paths of the program.
+ *
+ * Each benchmark is run for a few warmup iterations, then measured for a
+ * few more, and reported as throughput (operations per second), average
+ * time (nanoseconds per operation) and allocation (bytes per operation,
+ * where the JVM can count them). The parameters cycle through every root
+ * and every rooted heptatonic structure, so no single input gets cached
+ * into looking fast.
+ *
+ * Run with: java tests.Benchmarks [name filter] [milliseconds per iteration]
+ */
+public class Benchmarks {
+
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURED_ITERATIONS = 5;
+    private static final int BATCH = 1024;
+
+    /** Results are folded in here so that the JIT cannot drop the work. */
+    private static volatile long sink;
+
+    /** The 12 roots, as binomials and naturals. */
+    private static final List<String> ROOTS = Nomenclature.chromatic();
+
+    /** Every rooted heptatonic structure in 12 tones (462 of them). */
+    private static final int[] HEPTATONIC_MASKS = heptatonicMasks();
+
+    private static String filter = "";
+    private static long iteration_millis = 200;
+
+
+    /**
+     * One call of the code being measured. [i] counts the calls, so that
+     * the benchmark can pick its parameters; the result goes to the sink.
+     */
+    private interface Operation {
+        long run(int i);
+    }
+
+
+    public static void main(String[] args) {
+        if (args.length > 0) {
+            filter = args[0];
+        }
+        if (args.length > 1) {
+            iteration_millis = Long.parseLong(args[1]);
+        }
+        System.out.println(String.format(
+            "%-40s %16s %12s %12s", "Benchmark", "ops/s", "ns/op", "B/op"));
+
+        bench_bitwise();
+        bench_enharmonics();
+        bench_scientific();
+        bench_temperament();
+        bench_rendering();
+        bench_spelling();
+        bench_identification();
+    }
+
+
+    public static void bench_bitwise() {
+        IntervalBase[] structures = new IntervalBase[HEPTATONIC_MASKS.length];
+        for (int i = 0; i < structures.length; i++) {
+            structures[i] = new IntervalBase(HEPTATONIC_MASKS[i]);
+        }
+        int count = structures.length;
+
+        run("IntervalBase.and", i -> structures[i % count]
+                .and(structures[(i + 1) % count]).bitCount());
+        run("IntervalBase.shiftLeft", i -> structures[i % count]
+                .shiftLeft(i % Constants.TONES).bitLength());
+        run("IntervalBase.rotateRight", i -> IntervalBase
+                .rotateRight(structures[i % count], Constants.TONES).bitCount());
+        run("IntervalBase.next_inversion", i -> structures[i % count]
+                .next_inversion(Constants.TONES).bitCount());
+        run("IntervalBase.inversions", i -> IntervalBase
+                .inversions(structures[i % count], Constants.TONES).size());
+        run("PitchSet.rotateRight", i -> PitchSet
+                .rotateRight(HEPTATONIC_MASKS[i % count], i % Constants.TONES, Constants.TONES));
+        int[] modes = new int[Constants.TONES];
+        run("ModeEngine.next", i -> ModeEngine
+                .next(HEPTATONIC_MASKS[i % count], Constants.TONES));
+        run("ModeEngine.modes", i -> ModeEngine
+                .modes(HEPTATONIC_MASKS[i % count], Constants.TONES, modes));
+    }
+
+
+    public static void bench_enharmonics() {
+        List<String> spellings = new ArrayList<String>(Nomenclature.enharmonicDecoder().keySet());
+        int count = spellings.size();
+        int roots = ROOTS.size();
+        int naturals = Constants.NATURALS.size();
+
+        run("Nomenclature.decodeEnharmonic", i -> Nomenclature
+                .decodeEnharmonic(spellings.get(i % count)).length());
+        run("Nomenclature.encodeEnharmonic", i -> Nomenclature
+                .encodeEnharmonic(ROOTS.get(i % roots), Constants.NATURALS.get(i / roots % naturals))
+                .length());
+        run("Nomenclature.getEnharmonicEquivalents", i -> Nomenclature
+                .getEnharmonicEquivalents(ROOTS.get(i % roots)).size());
+    }
+
+
+    public static void bench_scientific() {
+        List<String> sharps = Nomenclature.scientificRange(Constants.SHARPS);
+        List<String> binomials = Nomenclature.scientificRange();
+        int count = binomials.size();
+        int naturals = Constants.NATURALS.size();
+        String[] positions = {Constants.Keywords.BELOW, Constants.Keywords.ABOVE};
+        // Stay an octave inside the range so that every target exists.
+        int inner = count - 2 * Constants.TONES;
+
+        run("Nomenclature.decodeScientificEnharmonic", i -> Nomenclature
+                .decodeScientificEnharmonic(sharps.get(i % count)).length());
+        run("Nomenclature.encodeScientificEnharmonic", i -> Nomenclature
+                .encodeScientificEnharmonic(sharps.get(Constants.TONES + i % inner),
+                        Constants.NATURALS.get(i % naturals), positions[i & 1])
+                .length());
+        run("Nomenclature.convertNoteToFrequency", i -> (long) Nomenclature
+                .convertNoteToFrequency(binomials.get(i % count)));
+        run("Nomenclature.convertFrequencyToNote", i -> Nomenclature
+                .convertFrequencyToNote(Temperament.frequency(i % count) * 1.01, Constants.FLATS)
+                .length());
+        run("ScientificPitch.pitchOf", i -> ScientificPitch
+                .pitchOf(sharps.get(i % count)));
+    }
+
+
+    public static void bench_temperament() {
+        int count = ScientificPitch.SIZE;
+
+        run("Temperament.equalTemperament", i -> (long) (double) Temperament
+                .equalTemperament().get(i % count));
+        run("Temperament.frequency", i -> (long) Temperament.frequency(i % count));
+        run("Temperament.nearestPitch", i -> Temperament
+                .nearestPitch(Temperament.frequency(i % count) * 0.99));
+    }
+
+
+    public static void bench_rendering() {
+        List<List<String>> scales = new ArrayList<List<String>>();
+        for (String root : ROOTS) {
+            scales.add(Functions.rotateList(Nomenclature.chromatic(), root));
+        }
+        IntervalBase[] structures = new IntervalBase[HEPTATONIC_MASKS.length];
+        for (int i = 0; i < structures.length; i++) {
+            structures[i] = new IntervalBase(HEPTATONIC_MASKS[i]);
+        }
+        int count = structures.length;
+        int roots = ROOTS.size();
+
+        run("Rendering.renderPlain", i -> Rendering
+                .renderPlain(structures[i % count], scales.get(i / count % roots)).size());
+        run("Rendering.renderPlain (binomial)", i -> Rendering
+                .renderPlain(structures[i % count]).size());
+        List<List<String>> fixed_scales = new ArrayList<List<String>>();
+        for (List<String> scale : scales) {
+            fixed_scales.add(List.copyOf(scale));
+        }
+        run("Rendering.renderPlain (immutable scale)", i -> Rendering
+                .renderPlain(structures[i % count], fixed_scales.get(i / count % roots)).size());
+        List<Renderer> renderers = new ArrayList<Renderer>();
+        for (List<String> scale : scales) {
+            renderers.add(Renderer.forScale(scale));
+        }
+        run("Renderer.render (held)", i -> renderers
+                .get(i / count % roots).render(structures[i % count]).size());
+    }
+
+
+    public static void bench_spelling() {
+        IntervalBase[] structures = new IntervalBase[HEPTATONIC_MASKS.length];
+        for (int i = 0; i < structures.length; i++) {
+            structures[i] = new IntervalBase(HEPTATONIC_MASKS[i]);
+        }
+        int count = structures.length;
+        int roots = ROOTS.size();
+
+        run("Nomenclature.bestHeptatonic", i -> Nomenclature
+                .bestHeptatonic(ROOTS.get(i / count % roots), structures[i % count]).size());
+        run("Nomenclature.bestSpelling", i -> Nomenclature
+                .bestSpelling(ROOTS.get(i / count % roots), structures[i % count]).size());
+    }
+
+
+    public static void bench_identification() {
+        int count = PitchClassCatalog.SIZE;
+
+        run("Identification.best", i -> Identification.best(i % count));
+        run("Identification.identify", i -> Identification.identify(i % count) == null ? 0 : 1);
+    }
+
+
+    /**
+     * Warm up and measure one benchmark, then print its line.
+     */
+    private static void run(String name, Operation operation) {
+        if (!name.contains(filter)) {
+            return;
+        }
+        AllocationCounter allocations = AllocationCounter.create();
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iterate(operation, allocations);
+        }
+        long operations = 0;
+        long nanos = 0;
+        long bytes = 0;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            long[] result = iterate(operation, allocations);
+            operations += result[0];
+            nanos += result[1];
+            bytes += result[2];
+        }
+        System.out.println(String.format(
+            "%-40s %,16.0f %12.1f %12s",
+            name,
+            operations * 1e9 / nanos,
+            (double) nanos / operations,
+            allocations.isSupported() ? String.format("%.1f", (double) bytes / operations) : "n/a"));
+    }
+
+
+    /**
+     * Call [operation] in batches until the iteration time is up.
+     *
+     * @return The number of calls, the nanoseconds they took, and the
+     *         bytes they allocated.
+     */
+    private static long[] iterate(Operation operation, AllocationCounter allocations) {
+        long deadline = System.nanoTime() + iteration_millis * 1_000_000;
+        long operations = 0;
+        long result = 0;
+        long allocated = allocations.bytes();
+        long start = System.nanoTime();
+        long now;
+        int i = 0;
+        do {
+            for (int j = 0; j < BATCH; j++) {
+                result += operation.run(i++);
+            }
+            operations += BATCH;
+            now = System.nanoTime();
+        } while (now < deadline);
+        long bytes = allocations.bytes() - allocated;
+        sink += result;
+        return new long[] {operations, now - start, bytes};
+    }
+
+
+    /**
+     * Counts the bytes allocated by the current thread, if the JVM offers
+     * com.sun.management.ThreadMXBean.
+     */
+    private static final class AllocationCounter {
+        private final com.sun.management.ThreadMXBean threads;
+
+        private AllocationCounter(com.sun.management.ThreadMXBean threads) {
+            this.threads = threads;
+        }
+
+        static AllocationCounter create() {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                    && threads.isThreadAllocatedMemorySupported()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+                return new AllocationCounter(threads);
+            }
+            return new AllocationCounter(null);
+        }
+
+        boolean isSupported() {
+            return threads != null;
+        }
+
+        long bytes() {
+            return threads == null ? 0 : threads.getCurrentThreadAllocatedBytes();
+        }
+    }
+
+
+    private static int[] heptatonicMasks() {
+        List<Integer> masks = new ArrayList<Integer>();
+        for (int mask = 1; mask < 1 << Constants.TONES; mask += 2) {
+            if (Integer.bitCount(mask) == Constants.NOTES) {
+                masks.add(mask);
+            }
+        }
+        return masks.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+}